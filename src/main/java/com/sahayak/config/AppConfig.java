@@ -1,5 +1,6 @@
 package com.sahayak.config;
 
+import com.sahayak.service.gemini.GeminiHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -8,7 +9,8 @@ import org.springframework.web.client.RestTemplate;
 public class AppConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(GeminiHttpClient geminiHttpClient) {
+        // Share the pooled HTTP/2 client used by all Gemini REST calls
+        return geminiHttpClient.getRestTemplate();
     }
 }
@@ -0,0 +1,97 @@
+package com.sahayak.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Named, bounded executors for the blocking workloads of the application.
+ *
+ * Each workload gets its own pool so that slow Gemini calls in one area cannot
+ * starve the others, and none of them run on the common ForkJoinPool. When a
+ * pool and its queue are full, submissions are rejected and surfaced to HTTP
+ * clients as 503 by ExecutorRejectionHandler.
+ *
+ * Defining these beans stops Boot from creating its applicationTaskExecutor,
+ * so the LLM evaluation pool is also registered under that name (and as the
+ * default @Async executor). Boot's executor metrics bind every pool by bean
+ * name (executor.pool.size, executor.active, executor.queued, ...).
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String LLM_EVALUATION_EXECUTOR = "llmEvaluationExecutor";
+    public static final String LIVE_SESSION_EXECUTOR = "liveSessionExecutor";
+    public static final String VIDEO_EXECUTOR = "videoExecutor";
+    public static final String VIDEO_FRAME_EXECUTOR = "videoFrameExecutor";
+    public static final String CLIENT_OUTBOUND_EXECUTOR = "clientOutboundExecutor";
+
+    /**
+     * Worksheet evaluation, question paper analysis and other REST LLM calls;
+     * also the application's default task executor
+     */
+    @Bean(name = {LLM_EVALUATION_EXECUTOR, TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+        AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor llmEvaluationExecutor(
+            @Value("${sahayak.executors.llm-evaluation.pool-size:16}") int poolSize,
+            @Value("${sahayak.executors.llm-evaluation.queue-capacity:100}") int queueCapacity) {
+        return createExecutor("llm-evaluation", poolSize, queueCapacity);
+    }
+
+    /**
+     * Opening warm Gemini Live connections for the connection pool
+     */
+    @Bean(name = LIVE_SESSION_EXECUTOR)
+    public ThreadPoolTaskExecutor liveSessionExecutor(
+            @Value("${sahayak.executors.live-session.pool-size:8}") int poolSize,
+            @Value("${sahayak.executors.live-session.queue-capacity:50}") int queueCapacity) {
+        return createExecutor("live-session", poolSize, queueCapacity);
+    }
+
+    /**
+     * Video prompt generation, Veo generation, status polling and downloads
+     */
+    @Bean(name = VIDEO_EXECUTOR)
+    public ThreadPoolTaskExecutor videoExecutor(
+            @Value("${sahayak.executors.video.pool-size:4}") int poolSize,
+            @Value("${sahayak.executors.video.queue-capacity:20}") int queueCapacity) {
+        return createExecutor("video", poolSize, queueCapacity);
+    }
+
+    /**
+     * Downscaling and re-encoding screen-share frames before they are sent to Gemini Live
+     */
+    @Bean(name = VIDEO_FRAME_EXECUTOR)
+    public ThreadPoolTaskExecutor videoFrameExecutor(
+            @Value("${sahayak.executors.video-frame.pool-size:2}") int poolSize,
+            @Value("${sahayak.executors.video-frame.queue-capacity:32}") int queueCapacity) {
+        return createExecutor("video-frame", poolSize, queueCapacity);
+    }
+
+    /**
+     * Writing queued messages to browser WebSocket sessions (one drain task per session at a time)
+     */
+    @Bean(name = CLIENT_OUTBOUND_EXECUTOR)
+    public ThreadPoolTaskExecutor clientOutboundExecutor(
+            @Value("${sahayak.executors.client-outbound.pool-size:8}") int poolSize,
+            @Value("${sahayak.executors.client-outbound.queue-capacity:1000}") int queueCapacity) {
+        return createExecutor("client-outbound", poolSize, queueCapacity);
+    }
+
+    private ThreadPoolTaskExecutor createExecutor(String name, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,42 @@
+package com.sahayak.config;
+
+import com.sahayak.service.FileSessionDirectory;
+import com.sahayak.service.InMemorySessionDirectory;
+import com.sahayak.service.SessionDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class SessionDirectoryConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionDirectoryConfig.class);
+
+    /**
+     * memory: this instance only (single replica).
+     * file: one file per session under path, shared by instances on one host.
+     */
+    @Value("${sahayak.session-directory.type:memory}")
+    private String type;
+
+    @Value("${sahayak.session-directory.path:${java.io.tmpdir}/sahayak-sessions}")
+    private String path;
+
+    // Address other replicas use to reach this one; must be routable between instances
+    @Value("${sahayak.instance.url:http://localhost:${server.port:8080}}")
+    private String instanceUrl;
+
+    @Bean
+    public SessionDirectory sessionDirectory() throws IOException {
+        if ("file".equalsIgnoreCase(type)) {
+            logger.info("File session directory at {} for instance {}", path, instanceUrl);
+            return new FileSessionDirectory(instanceUrl, Path.of(path));
+        }
+        return new InMemorySessionDirectory(instanceUrl);
+    }
+}
@@ -1,6 +1,9 @@
 package com.sahayak.config;
 
 import com.sahayak.websocket.SahayakWebSocketHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -12,6 +15,25 @@ import org.springframework.web.socket.server.standard.ServletServerContainerFact
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private static final String TEACHER_PATH = "/sahayak-teacher";
+
+    /**
+     * sockjs: SockJS on /sahayak-teacher (legacy clients).
+     * native: plain WebSocket on /sahayak-teacher, which avoids SockJS framing
+     * and per-session HTTP fallback buffers; SockJS moves to sockjs-path.
+     */
+    @Value("${sahayak.websocket.transport:sockjs}")
+    private String transport;
+
+    // SockJS path in native mode; blank disables SockJS entirely
+    @Value("${sahayak.websocket.sockjs-path:/sahayak-teacher-sockjs}")
+    private String sockJsPath;
+
+    @Value("${sahayak.websocket.allowed-origins:*}")
+    private String[] allowedOrigins;
+
     private final SahayakWebSocketHandler sahayakWebSocketHandler;
 
     public WebSocketConfig(SahayakWebSocketHandler sahayakWebSocketHandler) {
@@ -20,12 +42,27 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(sahayakWebSocketHandler, "/sahayak-teacher")
-                .setAllowedOriginPatterns("*")
+        if ("native".equalsIgnoreCase(transport)) {
+            registry.addHandler(sahayakWebSocketHandler, TEACHER_PATH)
+                    .setAllowedOriginPatterns(allowedOrigins);
+            logger.info("Native WebSocket endpoint: {}", TEACHER_PATH);
+
+            if (sockJsPath != null && !sockJsPath.isBlank()) {
+                registerSockJs(registry, sockJsPath);
+            }
+        } else {
+            registerSockJs(registry, TEACHER_PATH);
+        }
+    }
+
+    private void registerSockJs(WebSocketHandlerRegistry registry, String path) {
+        registry.addHandler(sahayakWebSocketHandler, path)
+                .setAllowedOriginPatterns(allowedOrigins)
                 .withSockJS()
                 .setStreamBytesLimit(1024 * 1024) // 1MB
                 .setHttpMessageCacheSize(1000)
                 .setDisconnectDelay(30 * 1000); // 30 seconds
+        logger.info("SockJS endpoint: {}", path);
     }
     
     @Bean
@@ -6,6 +6,7 @@ import com.google.protobuf.ByteString;
 import com.sahayak.model.ExamCreationRequest;
 import com.sahayak.model.ExamCreationResponse;
 import com.sahayak.service.ExamCreationService;
+import com.sahayak.service.gemini.GeminiResponseParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -44,9 +45,14 @@ public class ExamController {
     private String geminiApiKey;
     
     private final ExamCreationService examCreationService;
+    private final RestTemplate restTemplate;
+    private final GeminiResponseParser responseParser;
     
-    public ExamController(ExamCreationService examCreationService) {
+    public ExamController(ExamCreationService examCreationService, RestTemplate restTemplate,
+                          GeminiResponseParser responseParser) {
         this.examCreationService = examCreationService;
+        this.restTemplate = restTemplate;
+        this.responseParser = responseParser;
     }
     
     /**
@@ -251,15 +257,15 @@ public class ExamController {
                 logger.info("Calling Gemini API to summarize all pages of the PDF");
             }
             
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<Map> response = restTemplate.exchange(
+            // Extract the text while reading the response stream
+            String summary = restTemplate.execute(
                     urlWithApiKey, 
                     HttpMethod.POST, 
-                    entity, 
-                    Map.class);
-            
-            // Extract the text from the response
-            String summary = extractTextFromGeminiResponse(response.getBody());
+                    restTemplate.httpEntityCallback(entity), 
+                    geminiResponse -> responseParser.extractText(geminiResponse.getBody()));
+            if (summary == null) {
+                summary = "No summary available in the response";
+            }
             logger.info("Successfully received summary from Gemini API");
             
             return ResponseEntity.ok(summary);
@@ -270,31 +276,6 @@ public class ExamController {
         }
     }
     
-    /**
-     * Extract text from Gemini API response
-     * 
-     * @param response The response from Gemini API
-     * @return The extracted text
-     */
-    @SuppressWarnings("unchecked")
-    private String extractTextFromGeminiResponse(Map<String, Object> response) {
-        try {
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
-            if (candidates != null && !candidates.isEmpty()) {
-                Map<String, Object> candidate = candidates.get(0);
-                Map<String, Object> content = (Map<String, Object>) candidate.get("content");
-                List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-                if (parts != null && !parts.isEmpty()) {
-                    return (String) parts.get(0).get("text");
-                }
-            }
-            return "No summary available in the response";
-        } catch (Exception e) {
-            logger.error("Error extracting text from Gemini response", e);
-            return "Error extracting summary: " + e.getMessage();
-        }
-    }
-    
     /**
      * Check if a byte array has a valid PDF file signature
      * 
@@ -0,0 +1,54 @@
+package com.sahayak.controller;
+
+import com.sahayak.service.LiveCapacityExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maps executor saturation and full Live session capacity to 503 Service
+ * Unavailable with a Retry-After hint, so clients back off instead of seeing
+ * a generic 500.
+ */
+@RestControllerAdvice
+public class ExecutorRejectionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorRejectionHandler.class);
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleRejectedExecution(RejectedExecutionException e) {
+        logger.warn("Rejecting request, executor is saturated: {}", e.getMessage());
+
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", "Server is busy, please retry shortly");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+            .body(response);
+    }
+
+    @ExceptionHandler(LiveCapacityExceededException.class)
+    public ResponseEntity<Map<String, String>> handleLiveCapacityExceeded(LiveCapacityExceededException e) {
+        logger.warn("Rejecting Live session request: {}", e.getMessage());
+
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", "Server is at capacity, please retry shortly");
+        if (e.getRedirectUrl() != null) {
+            response.put("redirectUrl", e.getRedirectUrl());
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+            .body(response);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sahayak.controller;
 
+import com.sahayak.service.LiveCapacityExceededException;
 import com.sahayak.service.SahayakTeacherService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -164,6 +165,9 @@ public class SahayakController {
             response.put("status", "sent");
             response.put("message", "Text message sent successfully");
             return ResponseEntity.ok(response);
+        } catch (LiveCapacityExceededException e) {
+            // Hibernated session could not be resumed; mapped to 503 by ExecutorRejectionHandler
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to send text message to session: {}", sessionId, e);
             Map<String, String> response = new HashMap<>();
@@ -0,0 +1,239 @@
+package com.sahayak.controller;
+
+import com.sahayak.service.LiveSessionRegistry;
+import com.sahayak.service.SessionDirectory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Forwards REST calls for a Live session (status, text, DELETE) to the
+ * instance that owns it, as recorded in the SessionDirectory, so any replica
+ * can serve them. Forwarded requests are marked and never forwarded again.
+ * End-to-end headers are passed on in both directions. An owner that cannot
+ * be connected to answers 503 with Retry-After, since it may only be briefly
+ * overloaded. Only once connecting to it has failed repeatedly, for at least
+ * sahayak.session-routing.owner-gone-after-ms with no success in between, is
+ * it assumed gone (e.g. crashed): the session's directory entry is then
+ * removed and the session reported as not found.
+ */
+@Component
+public class SessionRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRoutingFilter.class);
+
+    private static final String FORWARDED_HEADER = "X-Sahayak-Forwarded-By";
+
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private static final Pattern SESSION_PATH = Pattern.compile("/api/sahayak/teacher/session/([^/]+)(/(text|status))?");
+
+    // Hop-by-hop headers (RFC 9110 7.6.1) plus ones the HTTP client or container set themselves
+    private static final Set<String> NOT_FORWARDED_HEADERS = Set.of(
+        "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "proxy-connection", "te",
+        "trailer", "transfer-encoding", "upgrade", "host", "content-length", "expect",
+        FORWARDED_HEADER.toLowerCase(Locale.ROOT));
+
+    private final SessionDirectory sessionDirectory;
+    private final LiveSessionRegistry sessionRegistry;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final int ownerGoneAfterFailures;
+    private final long ownerGoneAfterNanos;
+
+    // Owners whose last connection attempts failed, by URL; cleared by the next successful forward
+    private final ConcurrentMap<String, ConnectFailures> unreachableOwners = new ConcurrentHashMap<>();
+
+    public SessionRoutingFilter(SessionDirectory sessionDirectory, LiveSessionRegistry sessionRegistry,
+                                MeterRegistry meterRegistry,
+                                @Value("${sahayak.session-routing.timeout-ms:5000}") long timeoutMillis,
+                                @Value("${sahayak.session-routing.owner-gone-after-failures:3}") int ownerGoneAfterFailures,
+                                @Value("${sahayak.session-routing.owner-gone-after-ms:30000}") long ownerGoneAfterMillis) {
+        this.sessionDirectory = sessionDirectory;
+        this.sessionRegistry = sessionRegistry;
+        this.meterRegistry = meterRegistry;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.ownerGoneAfterFailures = ownerGoneAfterFailures;
+        this.ownerGoneAfterNanos = TimeUnit.MILLISECONDS.toNanos(ownerGoneAfterMillis);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !SESSION_PATH.matcher(pathOf(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher matcher = SESSION_PATH.matcher(pathOf(request));
+        String sessionId = matcher.matches() ? matcher.group(1) : null;
+        String ownerUrl = sessionId != null ? remoteOwner(sessionId, request) : null;
+        if (ownerUrl == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        forward(sessionId, ownerUrl, request, response);
+    }
+
+    /**
+     * Owner to forward to, or null if this instance should handle the request
+     */
+    private String remoteOwner(String sessionId, HttpServletRequest request) {
+        if (request.getHeader(FORWARDED_HEADER) != null || sessionRegistry.get(sessionId) != null) {
+            return null;
+        }
+        String ownerUrl = sessionDirectory.findOwner(sessionId);
+        return ownerUrl == null || sessionDirectory.isLocal(ownerUrl) ? null : ownerUrl;
+    }
+
+    private void forward(String sessionId, String ownerUrl, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String query = request.getQueryString();
+        URI target = URI.create(ownerUrl + request.getRequestURI() + (query != null ? "?" + query : ""));
+        byte[] body = request.getInputStream().readAllBytes();
+
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+            .timeout(timeout)
+            .header(FORWARDED_HEADER, sessionDirectory.getInstanceUrl())
+            .method(request.getMethod(), body.length > 0
+                ? HttpRequest.BodyPublishers.ofByteArray(body)
+                : HttpRequest.BodyPublishers.noBody());
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (isForwarded(name)) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    forwarded.header(name, value);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> ownerResponse = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+            recordHop(request.getMethod(), "success", start);
+            unreachableOwners.remove(ownerUrl);
+            logger.debug("Forwarded {} {} to {}: {}", request.getMethod(), request.getRequestURI(), ownerUrl, ownerResponse.statusCode());
+
+            response.setStatus(ownerResponse.statusCode());
+            for (Map.Entry<String, List<String>> header : ownerResponse.headers().map().entrySet()) {
+                if (isForwarded(header.getKey())) {
+                    for (String value : header.getValue()) {
+                        response.addHeader(header.getKey(), value);
+                    }
+                }
+            }
+            response.getOutputStream().write(ownerResponse.body());
+        } catch (ConnectException | HttpConnectTimeoutException e) {
+            if (isOwnerGone(ownerUrl)) {
+                recordHop(request.getMethod(), "stale", start);
+                logger.warn("Owner {} of session {} has been unreachable ({}), removing its directory entry", ownerUrl,
+                    sessionId, e.getMessage());
+                sessionDirectory.removeStale(sessionId, ownerUrl);
+                writeNotFound(response);
+            } else {
+                recordHop(request.getMethod(), "unreachable", start);
+                logger.warn("Owner {} of session {} is unreachable: {}", ownerUrl, sessionId, e.getMessage());
+                writeUnavailable(response);
+            }
+        } catch (IOException e) {
+            recordHop(request.getMethod(), "error", start);
+            logger.warn("Failed to forward {} {} to {}: {}", request.getMethod(), request.getRequestURI(), ownerUrl, e.getMessage());
+            writeError(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recordHop(request.getMethod(), "error", start);
+            writeError(response);
+        }
+    }
+
+    /**
+     * Record a failed connection to an owner; true once it has failed often and long enough to be considered gone
+     */
+    private boolean isOwnerGone(String ownerUrl) {
+        ConnectFailures failures = unreachableOwners.computeIfAbsent(ownerUrl, url -> new ConnectFailures());
+        int count = failures.count.incrementAndGet();
+        return count >= ownerGoneAfterFailures && System.nanoTime() - failures.sinceNanos >= ownerGoneAfterNanos;
+    }
+
+    private void recordHop(String method, String outcome, long startNanos) {
+        Timer.builder("sahayak.session.forward")
+            .description("Added latency of forwarding a session REST call to the owning instance")
+            .tag("method", method)
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isForwarded(String headerName) {
+        // HTTP/2 pseudo headers such as :status are not real headers
+        return !headerName.startsWith(":") && !NOT_FORWARDED_HEADERS.contains(headerName.toLowerCase(Locale.ROOT));
+    }
+
+    private static void writeNotFound(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.NOT_FOUND.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(
+            "{\"status\":\"error\",\"message\":\"Session not found\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeUnavailable(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(
+            "{\"status\":\"error\",\"message\":\"Instance owning the session is unreachable, please retry shortly\"}"
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeError(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.BAD_GATEWAY.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(
+            "{\"status\":\"error\",\"message\":\"Instance owning the session is unreachable\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static final class ConnectFailures {
+        final long sinceNanos = System.nanoTime();
+        final AtomicInteger count = new AtomicInteger();
+    }
+}
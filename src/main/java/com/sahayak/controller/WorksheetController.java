@@ -1,6 +1,7 @@
 package com.sahayak.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.model.ClassEvaluationEvent;
 import com.sahayak.model.WorksheetEvaluationRequest;
 import com.sahayak.model.WorksheetEvaluationResponse;
 import com.sahayak.model.QuestionPaperEvaluationRequest;
@@ -8,12 +9,22 @@ import com.sahayak.model.QuestionPaperAnalysisResult;
 import com.sahayak.service.WorksheetEvaluationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/worksheet")
@@ -25,6 +36,9 @@ public class WorksheetController {
     private final WorksheetEvaluationService worksheetEvaluationService;
     private final ObjectMapper objectMapper;
     
+    @Value("${worksheet.batch.max-answer-sheets:60}")
+    private int maxAnswerSheets;
+    
     public WorksheetController(WorksheetEvaluationService worksheetEvaluationService, ObjectMapper objectMapper) {
         this.worksheetEvaluationService = worksheetEvaluationService;
         this.objectMapper = objectMapper;
@@ -45,57 +59,54 @@ public class WorksheetController {
         logger.info("Received worksheet evaluation request. File: {}, Size: {} bytes", 
                    worksheetFile.getOriginalFilename(), worksheetFile.getSize());
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Parse metadata JSON
-                WorksheetEvaluationRequest request = objectMapper.readValue(metadataJson, WorksheetEvaluationRequest.class);
-                
-                // Validate required fields
-                if (request.getStudentName() == null || request.getStudentName().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Student name is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
-                
-                if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Subject is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
-                
-                if (request.getWorksheetTitle() == null || request.getWorksheetTitle().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Worksheet title is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
+        WorksheetEvaluationRequest request;
+        try {
+            // Parse metadata JSON
+            request = objectMapper.readValue(metadataJson, WorksheetEvaluationRequest.class);
+        } catch (Exception e) {
+            logger.error("Error processing worksheet evaluation request", e);
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
+                "Failed to process request: " + e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        // Validate required fields
+        if (request.getStudentName() == null || request.getStudentName().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Student name is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Subject is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        if (request.getWorksheetTitle() == null || request.getWorksheetTitle().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Worksheet title is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        logger.info("Processing worksheet evaluation for student: {}, subject: {}, worksheet: {}", 
+                   request.getStudentName(), request.getSubject(), request.getWorksheetTitle());
+        
+        // Process the worksheet evaluation; the service runs it on the evaluation executor
+        return worksheetEvaluationService.evaluateWorksheet(worksheetFile, request)
+            .thenApply(response -> {
+                if ("error".equals(response.getStatus())) {
+                    logger.error("Worksheet evaluation failed: {}", response.getError());
+                    return ResponseEntity.badRequest().body(response);
+                } else {
+                    logger.info("Worksheet evaluation completed successfully for student: {}", 
+                               request.getStudentName());
+                    return ResponseEntity.ok(response);
                 }
-                
-                logger.info("Processing worksheet evaluation for student: {}, subject: {}, worksheet: {}", 
-                           request.getStudentName(), request.getSubject(), request.getWorksheetTitle());
-                
-                // Process the worksheet evaluation
-                return worksheetEvaluationService.evaluateWorksheet(worksheetFile, request)
-                    .thenApply(response -> {
-                        if ("error".equals(response.getStatus())) {
-                            logger.error("Worksheet evaluation failed: {}", response.getError());
-                            return ResponseEntity.badRequest().body(response);
-                        } else {
-                            logger.info("Worksheet evaluation completed successfully for student: {}", 
-                                       request.getStudentName());
-                            return ResponseEntity.ok(response);
-                        }
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Unexpected error during worksheet evaluation", throwable);
-                        WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                            "Unexpected error: " + throwable.getMessage());
-                        return ResponseEntity.internalServerError().body(errorResponse);
-                    })
-                    .join(); // Wait for completion since we're already in async context
-                
-            } catch (Exception e) {
-                logger.error("Error processing worksheet evaluation request", e);
+            })
+            .exceptionally(throwable -> {
+                logger.error("Unexpected error during worksheet evaluation", throwable);
                 WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                    "Failed to process request: " + e.getMessage());
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-        });
+                    "Unexpected error: " + throwable.getMessage());
+                return ResponseEntity.internalServerError().body(errorResponse);
+            });
     }
     
     /**
@@ -185,6 +196,7 @@ public class WorksheetController {
                 "evaluateForm", "POST /api/worksheet/evaluate-form - Evaluate worksheet with form data",
                 "evaluateWithQuestionPaper", "POST /api/worksheet/evaluate-with-question-paper - NEW: Two-document evaluation with JSON metadata",
                 "evaluateWithQuestionPaperForm", "POST /api/worksheet/evaluate-with-question-paper-form - NEW: Two-document evaluation with form data",
+                "evaluateClass", "POST /api/worksheet/evaluate-class - One question paper, many answer sheets, NDJSON results",
                 "health", "GET /api/worksheet/health - Service health check",
                 "info", "GET /api/worksheet/info - API information",
                 "example", "GET /api/worksheet/example - Example request formats"
@@ -224,71 +236,37 @@ public class WorksheetController {
         logger.info("Received two-document evaluation request. Question paper: {}, Answer sheet: {}", 
                    questionPaper.getOriginalFilename(), answerSheet.getOriginalFilename());
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Parse metadata JSON
-                QuestionPaperEvaluationRequest request = objectMapper.readValue(metadataJson, QuestionPaperEvaluationRequest.class);
-                
-                // Validate required fields
-                if (request.getStudentName() == null || request.getStudentName().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Student name is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
-                
-                if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Subject is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
-                
-                if (request.getExamTitle() == null || request.getExamTitle().trim().isEmpty()) {
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Exam title is required");
-                    return ResponseEntity.badRequest().body(errorResponse);
-                }
-                
-                logger.info("Processing two-document evaluation for student: {}, subject: {}, exam: {}", 
-                           request.getStudentName(), request.getSubject(), request.getExamTitle());
-                
-                // Step 1: Analyze question paper
-                return worksheetEvaluationService.analyzeQuestionPaper(questionPaper, request.getSubject())
-                    .thenCompose(questionAnalysis -> {
-                        if ("error".equals(questionAnalysis.getStatus())) {
-                            logger.error("Question paper analysis failed: {}", questionAnalysis.getError());
-                            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                                "Failed to analyze question paper: " + questionAnalysis.getError());
-                            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
-                        }
-                        
-                        logger.info("Question paper analysis completed successfully. Total questions: {}, Total marks: {}", 
-                                   questionAnalysis.getTotalQuestions(), questionAnalysis.getTotalMarks());
-                        
-                        // Step 2: Evaluate answer sheet against parsed questions
-                        return worksheetEvaluationService.evaluateAnswerSheetAgainstQuestions(answerSheet, questionAnalysis, request)
-                            .thenApply(response -> {
-                                if ("error".equals(response.getStatus())) {
-                                    logger.error("Answer sheet evaluation failed: {}", response.getError());
-                                    return ResponseEntity.badRequest().body(response);
-                                } else {
-                                    logger.info("Two-document evaluation completed successfully for student: {}", 
-                                               request.getStudentName());
-                                    return ResponseEntity.ok(response);
-                                }
-                            });
-                    })
-                    .exceptionally(throwable -> {
-                        logger.error("Unexpected error during two-document evaluation", throwable);
-                        WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                            "Unexpected error: " + throwable.getMessage());
-                        return ResponseEntity.internalServerError().body(errorResponse);
-                    })
-                    .join(); // Wait for completion since we're already in async context
-                
-            } catch (Exception e) {
-                logger.error("Error processing two-document evaluation request", e);
-                WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                    "Failed to process request: " + e.getMessage());
-                return ResponseEntity.badRequest().body(errorResponse);
-            }
-        });
+        QuestionPaperEvaluationRequest request;
+        try {
+            // Parse metadata JSON
+            request = objectMapper.readValue(metadataJson, QuestionPaperEvaluationRequest.class);
+        } catch (Exception e) {
+            logger.error("Error processing two-document evaluation request", e);
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
+                "Failed to process request: " + e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        // Validate required fields
+        if (request.getStudentName() == null || request.getStudentName().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Student name is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Subject is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        if (request.getExamTitle() == null || request.getExamTitle().trim().isEmpty()) {
+            WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", "Exam title is required");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        }
+        
+        logger.info("Processing two-document evaluation for student: {}, subject: {}, exam: {}", 
+                   request.getStudentName(), request.getSubject(), request.getExamTitle());
+        
+        return evaluateTwoDocuments(questionPaper, answerSheet, request);
     }
     
     /**
@@ -330,39 +308,146 @@ public class WorksheetController {
         request.setAdditionalInstructions(additionalInstructions);
         request.setTeacherNotes(teacherNotes);
         
-        // Step 1: Analyze question paper
-        return worksheetEvaluationService.analyzeQuestionPaper(questionPaper, subject)
-            .thenCompose(questionAnalysis -> {
-                if ("error".equals(questionAnalysis.getStatus())) {
-                    logger.error("Question paper analysis failed: {}", questionAnalysis.getError());
-                    WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                        "Failed to analyze question paper: " + questionAnalysis.getError());
-                    return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(errorResponse));
+        return evaluateTwoDocuments(questionPaper, answerSheet, request);
+    }
+    
+    /**
+     * Run the composed two-document pipeline and map the outcome to an HTTP response.
+     * The returned future is handed straight to Spring MVC async handling.
+     */
+    private CompletableFuture<ResponseEntity<WorksheetEvaluationResponse>> evaluateTwoDocuments(
+            MultipartFile questionPaper, MultipartFile answerSheet, QuestionPaperEvaluationRequest request) {
+        
+        return worksheetEvaluationService.evaluateWithQuestionPaper(questionPaper, answerSheet, request)
+            .thenApply(response -> {
+                if ("error".equals(response.getStatus())) {
+                    logger.error("Two-document evaluation failed: {}", response.getError());
+                    return ResponseEntity.badRequest().body(response);
+                } else {
+                    logger.info("Two-document evaluation completed successfully for student: {}", 
+                               request.getStudentName());
+                    return ResponseEntity.ok(response);
                 }
-                
-                logger.info("Question paper analysis completed successfully. Total questions: {}, Total marks: {}", 
-                           questionAnalysis.getTotalQuestions(), questionAnalysis.getTotalMarks());
-                
-                // Step 2: Evaluate answer sheet against parsed questions
-                return worksheetEvaluationService.evaluateAnswerSheetAgainstQuestions(answerSheet, questionAnalysis, request)
-                    .thenApply(response -> {
-                        if ("error".equals(response.getStatus())) {
-                            logger.error("Answer sheet evaluation failed: {}", response.getError());
-                            return ResponseEntity.badRequest().body(response);
-                        } else {
-                            logger.info("Two-document evaluation completed successfully for student: {}", studentName);
-                            return ResponseEntity.ok(response);
-                        }
-                    });
             })
             .exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+                if (cause instanceof RejectedExecutionException) {
+                    // Let ExecutorRejectionHandler turn this into a 503
+                    throw new CompletionException(cause);
+                }
                 logger.error("Unexpected error during two-document evaluation", throwable);
                 WorksheetEvaluationResponse errorResponse = new WorksheetEvaluationResponse("error", 
-                    "Unexpected error: " + throwable.getMessage());
+                    "Unexpected error: " + cause.getMessage());
                 return ResponseEntity.internalServerError().body(errorResponse);
             });
     }
     
+    /**
+     * Class evaluation endpoint - one question paper and many answer sheets.
+     * The question paper is analyzed once and the answer sheets are evaluated in parallel
+     * (bounded by worksheet.batch.max-concurrency). Results are streamed back as NDJSON,
+     * one line per student as soon as each evaluation completes.
+     * 
+     * @param questionPaper The question paper document (PDF, JPG, PNG)
+     * @param answerSheets The students' answer sheet documents (PDF, JPG, PNG)
+     * @param studentNames Student names in the same order as answerSheets (optional, defaults to file names)
+     * @param subject Subject of the exam
+     * @param examTitle Title of the exam
+     * @param evaluationCriteria Evaluation criteria (strict|moderate|lenient)
+     * @param additionalInstructions Additional instructions (optional)
+     * @param teacherNotes Teacher notes (optional)
+     * @return NDJSON stream of ClassEvaluationEvent
+     */
+    @PostMapping("/evaluate-class")
+    public ResponseEntity<ResponseBodyEmitter> evaluateClass(
+            @RequestParam("questionPaper") MultipartFile questionPaper,
+            @RequestParam("answerSheets") List<MultipartFile> answerSheets,
+            @RequestParam(value = "studentNames", required = false) List<String> studentNames,
+            @RequestParam("subject") String subject,
+            @RequestParam("examTitle") String examTitle,
+            @RequestParam(value = "evaluationCriteria", defaultValue = "moderate") String evaluationCriteria,
+            @RequestParam(value = "additionalInstructions", required = false) String additionalInstructions,
+            @RequestParam(value = "teacherNotes", required = false) String teacherNotes) {
+        
+        logger.info("Received class evaluation request. Question paper: {}, Answer sheets: {}, Subject: {}", 
+                   questionPaper.getOriginalFilename(), answerSheets.size(), subject);
+        
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        Consumer<ClassEvaluationEvent> eventSink = event -> {
+            try {
+                emitter.send(objectMapper.writeValueAsString(event) + "\n", MediaType.TEXT_PLAIN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        ResponseEntity<ResponseBodyEmitter> response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(emitter);
+        
+        String validationError = null;
+        if (answerSheets.isEmpty()) {
+            validationError = "At least one answer sheet is required";
+        } else if (answerSheets.size() > maxAnswerSheets) {
+            validationError = "Too many answer sheets. Maximum per request: " + maxAnswerSheets;
+        } else if (studentNames != null && studentNames.size() != answerSheets.size()) {
+            validationError = "studentNames must have one entry per answer sheet";
+        }
+        if (validationError != null) {
+            logger.warn("Rejecting class evaluation request: {}", validationError);
+            eventSink.accept(ClassEvaluationEvent.error(validationError));
+            emitter.complete();
+            return response;
+        }
+        
+        // Create one request object per answer sheet
+        List<QuestionPaperEvaluationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < answerSheets.size(); i++) {
+            QuestionPaperEvaluationRequest request = new QuestionPaperEvaluationRequest();
+            request.setStudentName(studentNames != null ? studentNames.get(i) : studentNameFromFile(answerSheets.get(i)));
+            request.setSubject(subject);
+            request.setExamTitle(examTitle);
+            request.setEvaluationCriteria(evaluationCriteria);
+            request.setAdditionalInstructions(additionalInstructions);
+            request.setTeacherNotes(teacherNotes);
+            requests.add(request);
+        }
+        
+        worksheetEvaluationService.evaluateClass(questionPaper, answerSheets, requests, eventSink)
+            .whenComplete((ignored, throwable) -> {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+                if (cause instanceof RejectedExecutionException) {
+                    // Nothing has been streamed yet; let ExecutorRejectionHandler turn this into a 503
+                    emitter.completeWithError(cause);
+                    return;
+                }
+                if (throwable != null) {
+                    logger.error("Unexpected error during class evaluation", throwable);
+                    try {
+                        eventSink.accept(ClassEvaluationEvent.error("Unexpected error: " + throwable.getMessage()));
+                    } catch (Exception e) {
+                        logger.debug("Could not send class evaluation error: {}", e.getMessage());
+                    }
+                }
+                emitter.complete();
+            });
+        
+        return response;
+    }
+    
+    /**
+     * Derive a student name from an answer sheet file name (without extension)
+     */
+    private String studentNameFromFile(MultipartFile answerSheet) {
+        String fileName = answerSheet.getOriginalFilename();
+        if (fileName == null || fileName.isBlank()) {
+            return "Unknown";
+        }
+        int extensionIndex = fileName.lastIndexOf('.');
+        return extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+    }
+    
     /**
      * Get example request format for the API
      * 
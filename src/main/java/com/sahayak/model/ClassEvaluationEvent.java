@@ -0,0 +1,162 @@
+package com.sahayak.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of the NDJSON stream returned by the class evaluation endpoint.
+ *
+ * type is "analysis" once the question paper has been analyzed, "student"
+ * for each evaluated answer sheet (in completion order), "summary" at the
+ * end, or "error" if the batch could not run.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ClassEvaluationEvent {
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("index")
+    private Integer index;
+
+    @JsonProperty("fileName")
+    private String fileName;
+
+    @JsonProperty("totalQuestions")
+    private Integer totalQuestions;
+
+    @JsonProperty("totalMarks")
+    private Double totalMarks;
+
+    @JsonProperty("result")
+    private WorksheetEvaluationResponse result;
+
+    @JsonProperty("completed")
+    private Integer completed;
+
+    @JsonProperty("failed")
+    private Integer failed;
+
+    @JsonProperty("processingTime")
+    private String processingTime;
+
+    @JsonProperty("error")
+    private String error;
+
+    // Default constructor
+    public ClassEvaluationEvent() {}
+
+    public ClassEvaluationEvent(String type) {
+        this.type = type;
+    }
+
+    public static ClassEvaluationEvent analysis(QuestionPaperAnalysisResult questionAnalysis) {
+        ClassEvaluationEvent event = new ClassEvaluationEvent("analysis");
+        event.setTotalQuestions(questionAnalysis.getTotalQuestions());
+        event.setTotalMarks(questionAnalysis.getTotalMarks());
+        return event;
+    }
+
+    public static ClassEvaluationEvent student(int index, String fileName, WorksheetEvaluationResponse result) {
+        ClassEvaluationEvent event = new ClassEvaluationEvent("student");
+        event.setIndex(index);
+        event.setFileName(fileName);
+        event.setResult(result);
+        return event;
+    }
+
+    public static ClassEvaluationEvent summary(int completed, int failed, String processingTime) {
+        ClassEvaluationEvent event = new ClassEvaluationEvent("summary");
+        event.setCompleted(completed);
+        event.setFailed(failed);
+        event.setProcessingTime(processingTime);
+        return event;
+    }
+
+    public static ClassEvaluationEvent error(String error) {
+        ClassEvaluationEvent event = new ClassEvaluationEvent("error");
+        event.setError(error);
+        return event;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Integer getTotalQuestions() {
+        return totalQuestions;
+    }
+
+    public void setTotalQuestions(Integer totalQuestions) {
+        this.totalQuestions = totalQuestions;
+    }
+
+    public Double getTotalMarks() {
+        return totalMarks;
+    }
+
+    public void setTotalMarks(Double totalMarks) {
+        this.totalMarks = totalMarks;
+    }
+
+    public WorksheetEvaluationResponse getResult() {
+        return result;
+    }
+
+    public void setResult(WorksheetEvaluationResponse result) {
+        this.result = result;
+    }
+
+    public Integer getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Integer completed) {
+        this.completed = completed;
+    }
+
+    public Integer getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Integer failed) {
+        this.failed = failed;
+    }
+
+    public String getProcessingTime() {
+        return processingTime;
+    }
+
+    public void setProcessingTime(String processingTime) {
+        this.processingTime = processingTime;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
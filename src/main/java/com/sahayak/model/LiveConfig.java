@@ -17,6 +17,13 @@ public class LiveConfig {
     private GenerationConfig generationConfig;
     
     private List<Tool> tools;
+    
+    @JsonProperty("sessionResumption")
+    private SessionResumption sessionResumption;
+
+    // Set to an empty object to get text transcripts of audio responses
+    @JsonProperty("outputAudioTranscription")
+    private Map<String, Object> outputAudioTranscription;
 
     // Constructors
     public LiveConfig() {}
@@ -58,6 +65,22 @@ public class LiveConfig {
         this.tools = tools;
     }
 
+    public SessionResumption getSessionResumption() {
+        return sessionResumption;
+    }
+
+    public void setSessionResumption(SessionResumption sessionResumption) {
+        this.sessionResumption = sessionResumption;
+    }
+
+    public Map<String, Object> getOutputAudioTranscription() {
+        return outputAudioTranscription;
+    }
+
+    public void setOutputAudioTranscription(Map<String, Object> outputAudioTranscription) {
+        this.outputAudioTranscription = outputAudioTranscription;
+    }
+
     public static class SystemInstruction {
         private List<Part> parts;
 
@@ -168,4 +191,27 @@ public class LiveConfig {
             this.googleSearch = googleSearch;
         }
     }
+
+    /**
+     * Asks the server for resumption handles; with a handle, the setup resumes
+     * that earlier session instead of starting a new one
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SessionResumption {
+        private String handle;
+
+        public SessionResumption() {}
+
+        public SessionResumption(String handle) {
+            this.handle = handle;
+        }
+
+        public String getHandle() {
+            return handle;
+        }
+
+        public void setHandle(String handle) {
+            this.handle = handle;
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.sahayak.model;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class WorksheetEvaluationResponse {
     
@@ -27,6 +30,11 @@ public class WorksheetEvaluationResponse {
     @JsonProperty("processingTime")
     private String processingTime;
     
+    // Milliseconds spent in each pipeline stage; concurrent stages overlap
+    @JsonProperty("stageTimings")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, Long> stageTimings;
+    
     @JsonProperty("timestamp")
     private LocalDateTime timestamp;
     
@@ -67,6 +75,7 @@ public class WorksheetEvaluationResponse {
                 ", subject='" + subject + '\'' +
                 ", evaluation=" + evaluation +
                 ", processingTime='" + processingTime + '\'' +
+                ", stageTimings=" + stageTimings +
                 ", timestamp=" + timestamp +
                 ", error='" + error + '\'' +
                 '}';
@@ -137,6 +146,14 @@ public class WorksheetEvaluationResponse {
         this.timestamp = timestamp;
     }
     
+    public Map<String, Long> getStageTimings() {
+        return stageTimings;
+    }
+    
+    public void setStageTimings(Map<String, Long> stageTimings) {
+        this.stageTimings = stageTimings;
+    }
+    
     public String getError() {
         return error;
     }
@@ -283,9 +300,11 @@ public class WorksheetEvaluationResponse {
         private String correctAnswer;
         
         @JsonProperty("pointsAwarded")
+        @JsonAlias({"scoreAwarded", "score"})
         private double pointsAwarded;
         
         @JsonProperty("maxPoints")
+        @JsonAlias("maxScore")
         private double maxPoints;
         
         @JsonProperty("feedback")
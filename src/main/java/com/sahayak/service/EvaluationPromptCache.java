@@ -0,0 +1,66 @@
+package com.sahayak.service;
+
+import com.sahayak.model.WorksheetEvaluationRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache of worksheet evaluation prompts generated by Gemini Flash.
+ *
+ * The generated prompt only depends on the worksheet metadata (subject, title
+ * and evaluation criteria), never on the uploaded file or the student, so one
+ * Flash round trip serves every student evaluated against the same worksheet,
+ * including students whose evaluations start while it is still running.
+ * Entries are LRU bounded with a TTL.
+ */
+@Component
+public class EvaluationPromptCache {
+
+    @Value("${worksheet.prompt-cache.enabled:true}")
+    private boolean enabled;
+
+    private final TtlLruCache<String, String> cache;
+
+    public EvaluationPromptCache(MeterRegistry meterRegistry,
+                                 @Value("${worksheet.prompt-cache.max-entries:200}") int maxEntries,
+                                 @Value("${worksheet.prompt-cache.ttl-minutes:360}") long ttlMinutes) {
+        this.cache = new TtlLruCache<>("worksheet.prompt.cache", "Evaluation prompt cache",
+            maxEntries, ttlMinutes, prompt -> !prompt.isBlank(), null, meterRegistry);
+    }
+
+    /**
+     * Compute the cache key from the normalized request metadata, or null if
+     * caching is disabled
+     */
+    public String keyFor(WorksheetEvaluationRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        return normalize(request.getSubject()) + '\u0000'
+            + normalize(request.getWorksheetTitle()) + '\u0000'
+            + normalize(request.getEvaluationCriteria());
+    }
+
+    /**
+     * Get the cached prompt, or start the generator once for all concurrent
+     * callers with the same key. A null key (caching disabled) always generates.
+     * Callers compose on the returned future instead of waiting for a shared
+     * generation on a thread.
+     */
+    public CompletableFuture<String> get(String key, Supplier<CompletableFuture<String>> generator) {
+        return cache.getAsync(key, generator);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sahayak.model.ExamCreationRequest;
 import com.sahayak.model.ExamCreationResponse;
+import com.sahayak.service.gemini.GeminiResponseParser;
+import com.sahayak.service.gemini.GeminiSchemaGenerator;
 import com.sahayak.service.strategy.ExamTypeStrategy;
 import com.sahayak.service.strategy.ExamTypeStrategyFactory;
 import org.slf4j.Logger;
@@ -31,14 +33,19 @@ public class ExamCreationService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final ExamTypeStrategyFactory strategyFactory;
+    private final GeminiResponseParser responseParser;
+    private final GeminiSchemaGenerator schemaGenerator;
 
     // REST API endpoint for Gemini (not WebSocket)
     private static final String GEMINI_REST_API_URL = "https://generativelanguage.googleapis.com/v1beta/";
 
-    public ExamCreationService(RestTemplate restTemplate, ObjectMapper objectMapper, ExamTypeStrategyFactory strategyFactory) {
+    public ExamCreationService(RestTemplate restTemplate, ObjectMapper objectMapper, ExamTypeStrategyFactory strategyFactory,
+                               GeminiResponseParser responseParser, GeminiSchemaGenerator schemaGenerator) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.strategyFactory = strategyFactory;
+        this.responseParser = responseParser;
+        this.schemaGenerator = schemaGenerator;
     }
 
     /**
@@ -105,6 +112,12 @@ public class ExamCreationService {
             
             requestBody.put("contents", Collections.singletonList(contents));
             
+            // Ask for JSON matching ExamData instead of markdown-wrapped text
+            Map<String, Object> generationConfig = new HashMap<>();
+            generationConfig.put("responseMimeType", MediaType.APPLICATION_JSON_VALUE);
+            generationConfig.put("responseSchema", schemaGenerator.schemaFor(ExamCreationResponse.ExamData.class));
+            requestBody.put("generationConfig", generationConfig);
+            
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
             
             String response = restTemplate.postForObject(url, entity, String.class);
@@ -125,37 +138,15 @@ public class ExamCreationService {
      */
     private ExamCreationResponse parseResponse(String rawResponse, ExamCreationRequest request, ExamTypeStrategy strategy) {
         try {
-            JsonNode responseJson = objectMapper.readTree(rawResponse);
-            
             // Extract the text content from the response
-            String textContent = "";
-            if (responseJson.has("candidates") && responseJson.get("candidates").isArray() && 
-                responseJson.get("candidates").size() > 0) {
-                
-                JsonNode candidate = responseJson.get("candidates").get(0);
-                if (candidate.has("content") && candidate.get("content").has("parts") && 
-                    candidate.get("content").get("parts").isArray() && 
-                    candidate.get("content").get("parts").size() > 0) {
-                    
-                    JsonNode part = candidate.get("content").get("parts").get(0);
-                    if (part.has("text")) {
-                        textContent = part.get("text").asText();
-                    }
-                }
-            }
+            String textContent = responseParser.extractText(rawResponse);
             
-            if (textContent.isEmpty()) {
+            if (textContent == null || textContent.isEmpty()) {
                 return new ExamCreationResponse("error", "Failed to extract content from LLM response");
             }
             
-            // Extract JSON from the text content
-            String jsonContent = extractJsonFromText(textContent);
-            if (jsonContent.isEmpty()) {
-                return new ExamCreationResponse("error", "Failed to extract JSON from LLM response");
-            }
-            
-            // Parse the JSON content
-            JsonNode examJson = objectMapper.readTree(jsonContent);
+            // Structured output makes the text plain JSON; parse it once
+            JsonNode examJson = responseParser.readEmbeddedJson(textContent, JsonNode.class);
             
             // Use the strategy to parse the exam data
             ExamCreationResponse.ExamData examData = strategy.parseExamData(examJson, request);
@@ -166,43 +157,4 @@ public class ExamCreationService {
             return new ExamCreationResponse("error", "Failed to parse LLM response: " + e.getMessage());
         }
     }
-
-    /**
-     * Extracts JSON content from text that may contain markdown or other formatting
-     * 
-     * @param text The text to extract JSON from
-     * @return The extracted JSON content
-     */
-    private String extractJsonFromText(String text) {
-        // Look for JSON content between triple backticks
-        int startIndex = text.indexOf("```json");
-        if (startIndex != -1) {
-            startIndex += 7; // Length of "```json"
-            int endIndex = text.indexOf("```", startIndex);
-            if (endIndex != -1) {
-                return text.substring(startIndex, endIndex).trim();
-            }
-        }
-        
-        // Look for JSON content between single backticks
-        startIndex = text.indexOf("`{");
-        if (startIndex != -1) {
-            startIndex += 1; // Length of "`"
-            int endIndex = text.lastIndexOf("}`");
-            if (endIndex != -1) {
-                return text.substring(startIndex, endIndex + 1).trim();
-            }
-        }
-        
-        // Look for JSON content starting with { and ending with }
-        startIndex = text.indexOf("{");
-        if (startIndex != -1) {
-            int endIndex = text.lastIndexOf("}");
-            if (endIndex != -1) {
-                return text.substring(startIndex, endIndex + 1).trim();
-            }
-        }
-        
-        return "";
-    }
 }
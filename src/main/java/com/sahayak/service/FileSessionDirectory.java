@@ -0,0 +1,90 @@
+package com.sahayak.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Directory kept as one file per session (content: owner URL) in a directory
+ * shared by the instances, e.g. several instances on one machine. Meant for
+ * local multi-replica testing, not as a production store.
+ */
+public class FileSessionDirectory implements SessionDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSessionDirectory.class);
+
+    // Session ids come from request paths; never let one escape the directory
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final String instanceUrl;
+    private final Path directory;
+
+    public FileSessionDirectory(String instanceUrl, Path directory) throws IOException {
+        this.instanceUrl = instanceUrl;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public String getInstanceUrl() {
+        return instanceUrl;
+    }
+
+    @Override
+    public void register(String sessionId) {
+        Path file = fileOf(sessionId);
+        if (file == null) {
+            return;
+        }
+        try {
+            // Write and rename so readers never see a partial URL
+            Path temp = Files.createTempFile(directory, sessionId, ".tmp");
+            Files.writeString(temp, instanceUrl, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to register session {} in {}: {}", sessionId, directory, e.getMessage());
+        }
+    }
+
+    @Override
+    public void unregister(String sessionId) {
+        removeStale(sessionId, instanceUrl);
+    }
+
+    @Override
+    public void removeStale(String sessionId, String ownerUrl) {
+        if (ownerUrl.equals(findOwner(sessionId))) {
+            try {
+                Files.deleteIfExists(fileOf(sessionId));
+            } catch (IOException e) {
+                logger.warn("Failed to remove session {} from {}: {}", sessionId, directory, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String findOwner(String sessionId) {
+        Path file = fileOf(sessionId);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to look up session {} in {}: {}", sessionId, directory, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path fileOf(String sessionId) {
+        return SESSION_ID.matcher(sessionId).matches() ? directory.resolve(sessionId) : null;
+    }
+}
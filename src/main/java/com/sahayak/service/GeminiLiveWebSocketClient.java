@@ -1,20 +1,30 @@
 package com.sahayak.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sahayak.model.GeminiMessages.*;
 import com.sahayak.model.LiveConfig;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import javax.net.ssl.SSLContext;
@@ -27,19 +37,39 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
     
     private final ObjectMapper objectMapper;
     private final ApplicationEventPublisher eventPublisher;
-    private Consumer<String> audioDataHandler;
+    private final LiveRelayLogging.SessionLog relayLog;
+    // Templated realtimeInput writer with a buffer reused for every message; guarded by inputLock
+    private final RealtimeInputEncoder realtimeInputEncoder = new RealtimeInputEncoder();
+    // Serializes client input with the READY transition, so queued input is always sent first
+    private final Object inputLock = new Object();
+    // Client input received before the session is READY; guarded by inputLock
+    private final Deque<PendingInput> pendingInput = new ArrayDeque<>();
+    private int inputQueueCapacity = 100;
+    private volatile LiveSessionState state = LiveSessionState.CONNECTING;
+    private LiveAudioSink audioSink;
     private Consumer<String> contentHandler;
     private Consumer<String> errorHandler;
     private CompletableFuture<Void> connectionFuture;
-    private CompletableFuture<Void> setupFuture;
-    private boolean setupComplete = false;
+    // Completed when Gemini acknowledges the setup message with setupComplete
+    private final CompletableFuture<Void> setupFuture = new CompletableFuture<>();
+    private volatile boolean setupComplete = false;
+    // Latest session resumption handle sent by the server, if resumption is enabled
+    private volatile String resumptionHandle;
     
     public GeminiLiveWebSocketClient(String geminiUrl, String apiKey, 
                                    ObjectMapper objectMapper, 
                                    ApplicationEventPublisher eventPublisher) {
+        this(geminiUrl, apiKey, objectMapper, eventPublisher, LiveRelayLogging.untracked("live"));
+    }
+    
+    public GeminiLiveWebSocketClient(String geminiUrl, String apiKey, 
+                                   ObjectMapper objectMapper, 
+                                   ApplicationEventPublisher eventPublisher,
+                                   LiveRelayLogging.SessionLog relayLog) {
         super(URI.create(geminiUrl + "?key=" + apiKey));
         this.objectMapper = objectMapper;
         this.eventPublisher = eventPublisher;
+        this.relayLog = relayLog;
         this.connectionFuture = new CompletableFuture<>();
         
         // Configure SSL to trust all certificates (for development)
@@ -69,126 +99,246 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
     @Override
     public void onMessage(String message) {
         try {
-            logger.info("Received TEXT message from Gemini: {}", message);
-            // Handle text messages if any
-            processMessage(message);
+            relayLog.inbound(message);
+            try (JsonParser parser = objectMapper.getFactory().createParser(message)) {
+                processMessage(parser);
+            }
         } catch (Exception e) {
-            logger.error("Error processing text message: {}", message, e);
+            logger.error("Error processing text message: {}", relayLog.preview(message), e);
         }
     }
     
     @Override
-    public void onMessage(java.nio.ByteBuffer bytes) {
+    public void onMessage(ByteBuffer bytes) {
         try {
-            // Convert ByteBuffer to String for processing
-            byte[] array = new byte[bytes.remaining()];
-            bytes.get(array);
-            String message = new String(array, java.nio.charset.StandardCharsets.UTF_8);
-            logger.info("Received BINARY message from Gemini: {}", message);
-            processMessage(message);
+            // Gemini sends JSON in binary frames too; parse the UTF-8 bytes in place
+            relayLog.inbound(bytes);
+            JsonParser parser = bytes.hasArray()
+                ? objectMapper.getFactory().createParser(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining())
+                : objectMapper.getFactory().createParser(new ByteBufferBackedInputStream(bytes.duplicate()));
+            try (parser) {
+                processMessage(parser);
+            }
         } catch (Exception e) {
             logger.error("Error processing binary message", e);
         }
     }
     
-    private void processMessage(String message) throws Exception {
-        JsonNode jsonNode = objectMapper.readTree(message);
+    /**
+     * Walk a server message token by token; no tree is built and audio data is
+     * handed to the sink straight from the parser's buffer
+     */
+    private void processMessage(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return;
+        }
         
-        if (jsonNode.has("setupComplete")) {
-            logger.info("Setup completed successfully");
-            setupComplete = true;
-            if (setupFuture != null) {
+        boolean handled = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            
+            if ("setupComplete".equals(field)) {
+                parser.skipChildren();
+                logger.info("Setup completed successfully");
+                setupComplete = true;
+                markReady();
                 setupFuture.complete(null);
+                handled = true;
+            } else if ("serverContent".equals(field) && value == JsonToken.START_OBJECT) {
+                handleServerContent(parser);
+                handled = true;
+            } else if ("sessionResumptionUpdate".equals(field) && value == JsonToken.START_OBJECT) {
+                handleResumptionUpdate(parser);
+                handled = true;
+            } else {
+                parser.skipChildren();
             }
-            return;
         }
         
-        if (jsonNode.has("serverContent")) {
-            handleServerContent(jsonNode.get("serverContent"));
-        } else {
-            logger.debug("Received message without serverContent: {}", message);
+        if (!handled) {
+            logger.debug("Received message without serverContent");
         }
-        
-        // Log the entire message structure for debugging
-        logger.debug("Full message structure: {}", message);
     }
     
-    private void handleServerContent(JsonNode serverContent) throws Exception {
-        // Log the entire serverContent for debugging
-        logger.debug("Processing serverContent: {}", serverContent.toString());
-        
-        if (serverContent.has("interrupted") && serverContent.get("interrupted").asBoolean()) {
-            logger.info("Conversation interrupted");
-            return;
+    private void handleResumptionUpdate(JsonParser parser) throws IOException {
+        String newHandle = null;
+        boolean resumable = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("newHandle".equals(field) && value == JsonToken.VALUE_STRING) {
+                newHandle = parser.getText();
+            } else if ("resumable".equals(field)) {
+                resumable = value == JsonToken.VALUE_TRUE;
+            } else {
+                parser.skipChildren();
+            }
         }
-        
-        if (serverContent.has("turnComplete") && serverContent.get("turnComplete").asBoolean()) {
-            logger.info("Turn completed");
-            return;
+        // Mid-turn the session is not resumable and no new handle is sent; keep the last one
+        if (resumable && newHandle != null && !newHandle.isEmpty()) {
+            resumptionHandle = newHandle;
         }
-        
-        if (serverContent.has("modelTurn")) {
-            JsonNode modelTurn = serverContent.get("modelTurn");
-            logger.debug("Processing modelTurn: {}", modelTurn.toString());
+    }
+    
+    private void handleServerContent(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
             
-            if (modelTurn.has("parts")) {
-                JsonNode parts = modelTurn.get("parts");
-                logger.debug("Processing parts: {}", parts.toString());
-                
-                StringBuilder textContent = new StringBuilder();
-                boolean hasAudio = false;
-                boolean hasText = false;
-                
-                for (JsonNode part : parts) {
-                    logger.debug("Processing part: {}", part.toString());
+            switch (field) {
+                case "interrupted":
+                    if (value == JsonToken.VALUE_TRUE) {
+                        logger.info("Conversation interrupted");
+                    }
+                    break;
                     
-                    if (part.has("inlineData")) {
-                        JsonNode inlineData = part.get("inlineData");
-                        String mimeType = inlineData.get("mimeType").asText();
-                        String data = inlineData.get("data").asText();
-                        
-                        if (mimeType.startsWith("audio/pcm")) {
-                            logger.info("Received audio data, size: {}", data.length());
-                            hasAudio = true;
-                            if (audioDataHandler != null) {
-                                audioDataHandler.accept(data);
-                            }
+                case "turnComplete":
+                    if (value == JsonToken.VALUE_TRUE) {
+                        logger.info("Turn completed");
+                    }
+                    break;
+                    
+                case "outputTranscription":
+                    // Transcript of the audio response (single-connection mode), routed like text responses
+                    String transcription = readTextField(parser, value);
+                    if (transcription != null && !transcription.isEmpty()) {
+                        relayLog.textPart();
+                        if (contentHandler != null) {
+                            contentHandler.accept(transcription);
                         }
-                    } else if (part.has("text")) {
-                        String text = part.get("text").asText();
-                        logger.info("Received text part: {}", text);
-                        textContent.append(text);
-                        hasText = true;
+                    }
+                    break;
+                    
+                case "modelTurn":
+                    if (value == JsonToken.START_OBJECT) {
+                        handleModelTurn(parser);
                     } else {
-                        logger.debug("Part has neither inlineData nor text: {}", part.toString());
+                        parser.skipChildren();
                     }
-                }
-                
-                // Send accumulated text content if any
-                if (textContent.length() > 0) {
-                    String fullText = textContent.toString();
-                    logger.info("Sending complete text response: {}", fullText);
-                    if (contentHandler != null) {
-                        contentHandler.accept(fullText);
+                    break;
+                    
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+    
+    private void handleModelTurn(JsonParser parser) throws IOException {
+        StringBuilder textContent = null;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"parts".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String partField = parser.currentName();
+                    JsonToken partValue = parser.nextToken();
+                    if ("inlineData".equals(partField) && partValue == JsonToken.START_OBJECT) {
+                        handleInlineData(parser);
+                    } else if ("text".equals(partField) && partValue == JsonToken.VALUE_STRING) {
+                        relayLog.textPart();
+                        if (textContent == null) {
+                            textContent = new StringBuilder();
+                        }
+                        textContent.append(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else {
+                        parser.skipChildren();
                     }
                 }
-                
-                logger.debug("Message processed - hasAudio: {}, hasText: {}, textLength: {}", 
-                           hasAudio, hasText, textContent.length());
+            }
+        }
+        
+        // Send accumulated text content if any
+        if (textContent != null && textContent.length() > 0) {
+            String fullText = textContent.toString();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Sending complete text response: {}", relayLog.preview(fullText));
+            }
+            if (contentHandler != null) {
+                contentHandler.accept(fullText);
+            }
+        }
+    }
+    
+    private void handleInlineData(JsonParser parser) throws IOException {
+        String mimeType = null;
+        // Only needed if data arrives before mimeType
+        String bufferedData = null;
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("mimeType".equals(field) && value == JsonToken.VALUE_STRING) {
+                mimeType = parser.getText();
+            } else if ("data".equals(field) && value == JsonToken.VALUE_STRING) {
+                if (mimeType == null) {
+                    bufferedData = parser.getText();
+                } else if (isAudio(mimeType)) {
+                    // Slice of the parser's buffer: no String for hundreds of KB of base64
+                    deliverAudio(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        
+        if (bufferedData != null && isAudio(mimeType)) {
+            deliverAudio(bufferedData.toCharArray(), 0, bufferedData.length());
+        }
+    }
+    
+    private static boolean isAudio(String mimeType) {
+        return mimeType != null && mimeType.startsWith("audio/pcm");
+    }
+    
+    private void deliverAudio(char[] base64, int offset, int length) {
+        relayLog.audioChunk();
+        if (audioSink != null) {
+            audioSink.onAudio(base64, offset, length);
+        }
+    }
+    
+    /**
+     * Read {"text": "..."} at the current object start, or null
+     */
+    private static String readTextField(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("text".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                text = parser.getText();
             } else {
-                logger.debug("modelTurn has no parts");
+                parser.skipChildren();
             }
-        } else {
-            logger.debug("serverContent has no modelTurn");
         }
+        return text;
     }
     
     @Override
     public void onClose(int code, String reason, boolean remote) {
         logger.info("Connection closed: {} - {}", code, reason);
+        synchronized (inputLock) {
+            state = LiveSessionState.CLOSED;
+            pendingInput.clear();
+        }
+        relayLog.logSummary();
         if (!connectionFuture.isDone()) {
             connectionFuture.completeExceptionally(new RuntimeException("Connection closed: " + reason));
         }
+        if (!setupFuture.isDone()) {
+            setupFuture.completeExceptionally(new RuntimeException("Connection closed before setup completed: " + reason));
+        }
     }
     
     @Override
@@ -197,6 +347,9 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
         if (!connectionFuture.isDone()) {
             connectionFuture.completeExceptionally(ex);
         }
+        if (!setupFuture.isDone()) {
+            setupFuture.completeExceptionally(ex);
+        }
         if (errorHandler != null) {
             errorHandler.accept("WebSocket error: " + ex.getMessage());
         }
@@ -207,12 +360,73 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
         return connectionFuture;
     }
     
+    /**
+     * Future completed once the WebSocket handshake is done
+     */
+    public CompletableFuture<Void> getConnectionFuture() {
+        return connectionFuture;
+    }
+    
+    @Override
+    public void close() {
+        synchronized (inputLock) {
+            if (state != LiveSessionState.CLOSED) {
+                state = LiveSessionState.CLOSING;
+            }
+            pendingInput.clear();
+        }
+        super.close();
+    }
+    
+    public LiveSessionState getState() {
+        return state;
+    }
+    
+    /**
+     * Maximum number of client messages buffered until the session is READY;
+     * the oldest audio or video is dropped beyond that, text never is
+     */
+    public void setInputQueueCapacity(int inputQueueCapacity) {
+        this.inputQueueCapacity = inputQueueCapacity;
+    }
+    
+    /**
+     * Future completed once the setup message has been acknowledged; fails if
+     * the connection closes first
+     */
+    public CompletableFuture<Void> getSetupFuture() {
+        return setupFuture;
+    }
+    
+    /**
+     * Handle to resume this Live session on a new connection, or null
+     */
+    public String getResumptionHandle() {
+        return resumptionHandle;
+    }
+    
+    public boolean isSetupComplete() {
+        return setupComplete;
+    }
+    
+    /**
+     * Attach the connection to a session, e.g. when it is taken from the warm pool
+     */
+    public void setRelayLabel(String label) {
+        relayLog.setLabel(label);
+    }
+    
     public void sendSetupMessage(LiveConfig config) {
         try {
             SetupMessage setupMessage = new SetupMessage(config);
             String json = objectMapper.writeValueAsString(setupMessage);
-            logger.debug("Sending setup message: {}", json);
+            logger.debug("Sending setup message: {}", relayLog.preview(json));
             send(json);
+            synchronized (inputLock) {
+                if (state == LiveSessionState.CONNECTING) {
+                    state = LiveSessionState.SETUP_SENT;
+                }
+            }
         } catch (Exception e) {
             logger.error("Error sending setup message", e);
             throw new RuntimeException("Failed to send setup message", e);
@@ -220,55 +434,160 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
     }
     
     public void sendAudioData(String base64AudioData) {
-        try {
-            MediaChunk audioChunk = new MediaChunk("audio/pcm;rate=16000", base64AudioData);
-            RealtimeInput realtimeInput = new RealtimeInput(Arrays.asList(audioChunk));
-            RealtimeInputMessage message = new RealtimeInputMessage(realtimeInput);
-            
-            String json = objectMapper.writeValueAsString(message);
-            logger.debug("Sending audio data, size: {}", base64AudioData.length());
-            send(json);
-        } catch (Exception e) {
-            logger.error("Error sending audio data", e);
-            throw new RuntimeException("Failed to send audio data", e);
-        }
+        submitInput(InputKind.AUDIO, () -> sendRealtimeInput(InputKind.AUDIO, realtimeInputEncoder.encodeAudio(base64AudioData)));
     }
     
     public void sendVideoData(String base64VideoData) {
+        // Live API format: realtimeInput with mediaChunks (like Live API console)
+        submitInput(InputKind.VIDEO, () -> sendRealtimeInput(InputKind.VIDEO, realtimeInputEncoder.encodeVideo(base64VideoData)));
+    }
+    
+    /**
+     * Send raw 16 kHz PCM audio; base64 encoding happens once, straight into
+     * the outgoing frame
+     */
+    public void sendAudioData(ByteBuffer pcmAudio) {
+        submitInput(InputKind.AUDIO, pcmAudio, audio -> sendRealtimeInput(InputKind.AUDIO, realtimeInputEncoder.encodeAudio(audio)));
+    }
+    
+    /**
+     * Send a raw JPEG frame; base64 encoding happens once, straight into the
+     * outgoing frame
+     */
+    public void sendVideoData(ByteBuffer jpegFrame) {
+        submitInput(InputKind.VIDEO, jpegFrame, video -> sendRealtimeInput(InputKind.VIDEO, realtimeInputEncoder.encodeVideo(video)));
+    }
+    
+    /**
+     * Send input now if the session is READY, otherwise queue it until setup completes
+     */
+    private void submitInput(InputKind kind, Runnable sender) {
         try {
-            // Use correct Live API format: realtimeInput with mediaChunks (like Live API console)
-            MediaChunk videoChunk = new MediaChunk("image/jpeg", base64VideoData);
-            RealtimeInput realtimeInput = new RealtimeInput(Arrays.asList(videoChunk));
-            RealtimeInputMessage message = new RealtimeInputMessage(realtimeInput);
-            
-            String json = objectMapper.writeValueAsString(message);
-            logger.debug("Sending video data as realtimeInput, size: {}", base64VideoData.length());
-            send(json);
+            synchronized (inputLock) {
+                if (state == LiveSessionState.READY) {
+                    sender.run();
+                } else {
+                    enqueueInput(kind, sender);
+                }
+            }
         } catch (Exception e) {
-            logger.error("Error sending video data", e);
-            throw new RuntimeException("Failed to send video data", e);
+            logger.error("Error sending {} data", kind, e);
+            throw new RuntimeException("Failed to send " + kind + " data", e);
         }
     }
     
-    public void sendTextMessage(String text) {
+    private void submitInput(InputKind kind, ByteBuffer payload, Consumer<ByteBuffer> sender) {
         try {
-            Part textPart = new Part(text);
-            Content content = new Content("user", Arrays.asList(textPart));
-            ClientContent clientContent = new ClientContent(Arrays.asList(content), true);
-            ClientContentMessage message = new ClientContentMessage(clientContent);
-            
-            String json = objectMapper.writeValueAsString(message);
-            logger.debug("Sending text message: {}", text);
-            send(json);
+            synchronized (inputLock) {
+                if (state == LiveSessionState.READY) {
+                    sender.accept(payload);
+                } else {
+                    // The caller's buffer is only valid during this call
+                    ByteBuffer copy = ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip();
+                    enqueueInput(kind, () -> sender.accept(copy));
+                }
+            }
         } catch (Exception e) {
-            logger.error("Error sending text message", e);
-            throw new RuntimeException("Failed to send text message", e);
+            logger.error("Error sending {} data", kind, e);
+            throw new RuntimeException("Failed to send " + kind + " data", e);
         }
     }
     
+    // Caller holds inputLock
+    private void enqueueInput(InputKind kind, Runnable sender) {
+        if (!state.acceptsInput()) {
+            throw new IllegalStateException("Live session is " + state);
+        }
+        if (pendingInput.size() >= inputQueueCapacity) {
+            dropOldestMedia();
+        }
+        pendingInput.addLast(new PendingInput(kind, sender));
+        relayLog.inputQueued();
+        logger.trace("Queued {} input until setup completes ({} pending)", kind, pendingInput.size());
+    }
+    
+    // Real-time audio and video can be dropped; text is what the user typed and must not be
+    private void dropOldestMedia() {
+        Iterator<PendingInput> it = pendingInput.iterator();
+        while (it.hasNext()) {
+            if (it.next().kind.isDroppable()) {
+                it.remove();
+                relayLog.inputDropped();
+                return;
+            }
+        }
+        logger.error("Input queue full with {} text messages before setup completed", pendingInput.size());
+        throw new IllegalStateException("Too many text messages queued before the Live session is ready");
+    }
+    
+    private void markReady() {
+        synchronized (inputLock) {
+            if (!state.acceptsInput()) {
+                return;
+            }
+            state = LiveSessionState.READY;
+            if (!pendingInput.isEmpty()) {
+                logger.info("Session ready, sending {} queued inputs", pendingInput.size());
+            }
+            PendingInput input;
+            while ((input = pendingInput.pollFirst()) != null) {
+                try {
+                    input.sender.run();
+                } catch (Exception e) {
+                    logger.warn("Failed to send queued input: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void sendRealtimeInput(InputKind kind, ByteBuffer json) {
+        relayLog.outbound(kind.toString(), json.remaining());
+        // The frame payload is copied into the wire buffer before sendFrame returns,
+        // so the encoder's buffer can be reused for the next message
+        TextFrame frame = new TextFrame();
+        frame.setPayload(json);
+        frame.setFin(true);
+        sendFrame(frame);
+    }
+    
+    public void sendTextMessage(String text) {
+        submitInput(InputKind.TEXT, () -> {
+            try {
+                Part textPart = new Part(text);
+                Content content = new Content("user", Arrays.asList(textPart));
+                ClientContent clientContent = new ClientContent(Arrays.asList(content), true);
+                ClientContentMessage message = new ClientContentMessage(clientContent);
+                
+                String json = objectMapper.writeValueAsString(message);
+                relayLog.outbound(InputKind.TEXT.toString(), json.length());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Sending text message: {}", relayLog.preview(text));
+                }
+                send(json);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+    
     // Setters for handlers
     public void setAudioDataHandler(Consumer<String> audioDataHandler) {
-        this.audioDataHandler = audioDataHandler;
+        this.audioSink = audioDataHandler == null ? null
+            : (base64, offset, length) -> audioDataHandler.accept(new String(base64, offset, length));
+    }
+    
+    public void setAudioSink(LiveAudioSink audioSink) {
+        this.audioSink = audioSink;
+    }
+    
+    /**
+     * Take over the audio, content and error handlers of the connection this
+     * one replaces
+     */
+    public void copyHandlersFrom(GeminiLiveWebSocketClient other) {
+        this.audioSink = other.audioSink;
+        this.contentHandler = other.contentHandler;
+        this.errorHandler = other.errorHandler;
     }
     
     public void setContentHandler(Consumer<String> contentHandler) {
@@ -278,4 +597,31 @@ public class GeminiLiveWebSocketClient extends WebSocketClient {
     public void setErrorHandler(Consumer<String> errorHandler) {
         this.errorHandler = errorHandler;
     }
+    
+    /**
+     * Kind of client input; only real-time media may be dropped from the
+     * pending queue, text is what the user typed
+     */
+    private enum InputKind {
+        AUDIO, VIDEO, TEXT;
+        
+        boolean isDroppable() {
+            return this != TEXT;
+        }
+        
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    private static final class PendingInput {
+        final InputKind kind;
+        final Runnable sender;
+        
+        PendingInput(InputKind kind, Runnable sender) {
+            this.kind = kind;
+            this.sender = sender;
+        }
+    }
 }
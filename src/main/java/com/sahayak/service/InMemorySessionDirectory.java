@@ -0,0 +1,43 @@
+package com.sahayak.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directory of a single instance: every session it knows is local, so
+ * nothing is ever forwarded. The default when running one replica.
+ */
+public class InMemorySessionDirectory implements SessionDirectory {
+
+    private final String instanceUrl;
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    public InMemorySessionDirectory(String instanceUrl) {
+        this.instanceUrl = instanceUrl;
+    }
+
+    @Override
+    public String getInstanceUrl() {
+        return instanceUrl;
+    }
+
+    @Override
+    public void register(String sessionId) {
+        owners.put(sessionId, instanceUrl);
+    }
+
+    @Override
+    public void unregister(String sessionId) {
+        owners.remove(sessionId, instanceUrl);
+    }
+
+    @Override
+    public String findOwner(String sessionId) {
+        return owners.get(sessionId);
+    }
+
+    @Override
+    public void removeStale(String sessionId, String ownerUrl) {
+        owners.remove(sessionId, ownerUrl);
+    }
+}
@@ -0,0 +1,174 @@
+package com.sahayak.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits how many Live sessions this instance accepts, so latency stays
+ * bounded for the sessions it already has.
+ *
+ * Capacity is configured as a session count (live.admission.max-sessions)
+ * and as estimated relay bandwidth (live.admission.max-bandwidth-kbps, with a
+ * per-session estimate for audio and text-only sessions); 0 disables a limit.
+ * Sessions over either limit are rejected up front. Once utilization reaches
+ * live.admission.readiness-threshold the instance reports itself not ready,
+ * so the load balancer sends new connections elsewhere before requests have
+ * to be rejected.
+ */
+@Component
+public class LiveAdmissionControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveAdmissionControl.class);
+
+    @Value("${live.admission.max-sessions:0}")
+    private int maxSessions;
+
+    @Value("${live.admission.max-bandwidth-kbps:0}")
+    private long maxBandwidthKbps;
+
+    // 16 kHz PCM up plus 24 kHz PCM down, base64 encoded, on both the browser and Gemini side
+    @Value("${live.admission.audio-session-kbps:1400}")
+    private long audioSessionKbps;
+
+    @Value("${live.admission.text-session-kbps:20}")
+    private long textSessionKbps;
+
+    @Value("${live.admission.readiness-threshold:0.9}")
+    private double readinessThreshold;
+
+    // Optional other endpoint rejected WebSocket clients are pointed to
+    @Value("${live.admission.redirect-url:}")
+    private String redirectUrl;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter acceptedSessions;
+    private final Counter rejectedBySessions;
+    private final Counter rejectedByBandwidth;
+
+    // All guarded by "this"
+    private int sessions;
+    private long bandwidthKbps;
+    private boolean refusingTraffic;
+    private boolean shuttingDown;
+
+    public LiveAdmissionControl(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.acceptedSessions = Counter.builder("live.admission")
+            .tag("result", "accepted")
+            .tag("reason", "none")
+            .description("Live session admission decisions")
+            .register(meterRegistry);
+        this.rejectedBySessions = rejectedCounter(meterRegistry, "sessions");
+        this.rejectedByBandwidth = rejectedCounter(meterRegistry, "bandwidth");
+
+        meterRegistry.gauge("live.admission.sessions", this, LiveAdmissionControl::getSessions);
+        meterRegistry.gauge("live.admission.bandwidth.kbps", this, LiveAdmissionControl::getBandwidthKbps);
+        meterRegistry.gauge("live.admission.utilization", this, LiveAdmissionControl::getUtilization);
+    }
+
+    /**
+     * Reserve capacity for a new session, or throw LiveCapacityExceededException.
+     * The returned action releases the reservation; running it more than once
+     * has no further effect.
+     */
+    public Runnable admit(String sessionType, boolean audio) {
+        long kbps = audio ? audioSessionKbps : textSessionKbps;
+        synchronized (this) {
+            if (maxSessions > 0 && sessions + 1 > maxSessions) {
+                rejectedBySessions.increment();
+                logger.warn("Rejecting {} session: {} of {} sessions in use", sessionType, sessions, maxSessions);
+                throw new LiveCapacityExceededException("sessions", "Live session capacity reached", redirectUrlOrNull());
+            }
+            if (maxBandwidthKbps > 0 && bandwidthKbps + kbps > maxBandwidthKbps) {
+                rejectedByBandwidth.increment();
+                logger.warn("Rejecting {} session: {} of {} kbps in use", sessionType, bandwidthKbps, maxBandwidthKbps);
+                throw new LiveCapacityExceededException("bandwidth", "Live bandwidth capacity reached", redirectUrlOrNull());
+            }
+            sessions++;
+            bandwidthKbps += kbps;
+            acceptedSessions.increment();
+            updateReadiness();
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release(kbps);
+            }
+        };
+    }
+
+    public synchronized int getSessions() {
+        return sessions;
+    }
+
+    public synchronized long getBandwidthKbps() {
+        return bandwidthKbps;
+    }
+
+    /**
+     * Fraction of the tighter of the two limits in use; 0 when neither is set
+     */
+    public synchronized double getUtilization() {
+        double utilization = 0;
+        if (maxSessions > 0) {
+            utilization = (double) sessions / maxSessions;
+        }
+        if (maxBandwidthKbps > 0) {
+            utilization = Math.max(utilization, (double) bandwidthKbps / maxBandwidthKbps);
+        }
+        return utilization;
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void onContextClosed() {
+        // Spring reports REFUSING_TRAFFIC on shutdown; sessions closing now must not flip it back
+        shuttingDown = true;
+    }
+
+    private synchronized void release(long kbps) {
+        sessions--;
+        bandwidthKbps -= kbps;
+        updateReadiness();
+    }
+
+    // Caller holds the lock, so readiness events are published in order
+    private void updateReadiness() {
+        if (shuttingDown) {
+            return;
+        }
+        boolean full = (maxSessions > 0 || maxBandwidthKbps > 0) && getUtilization() >= readinessThreshold;
+        if (full && !refusingTraffic) {
+            refusingTraffic = true;
+            logger.warn("Live capacity at {}%, reporting not ready", Math.round(getUtilization() * 100));
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        } else if (!full && refusingTraffic) {
+            refusingTraffic = false;
+            logger.info("Live capacity at {}%, reporting ready again", Math.round(getUtilization() * 100));
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private String redirectUrlOrNull() {
+        return redirectUrl == null || redirectUrl.isBlank() ? null : redirectUrl;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("live.admission")
+            .tag("result", "rejected")
+            .tag("reason", reason)
+            .description("Live session admission decisions")
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.sahayak.service;
+
+/**
+ * Receives audio from a Gemini Live connection without an intermediate String.
+ *
+ * The base64 PCM of one inlineData part is passed as a region of the JSON
+ * parser's buffer, which is only valid for the duration of the call: copy or
+ * decode it before returning.
+ */
+@FunctionalInterface
+public interface LiveAudioSink {
+
+    void onAudio(char[] base64, int offset, int length);
+}
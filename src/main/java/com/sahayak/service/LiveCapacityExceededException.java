@@ -0,0 +1,34 @@
+package com.sahayak.service;
+
+/**
+ * Thrown when a new Live session would exceed this instance's configured
+ * session or bandwidth capacity. Clients should retry later, ideally on
+ * another instance.
+ */
+public class LiveCapacityExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final String redirectUrl;
+
+    public LiveCapacityExceededException(String reason, String message, String redirectUrl) {
+        super(message);
+        this.reason = reason;
+        this.redirectUrl = redirectUrl;
+    }
+
+    /**
+     * Which limit was hit: "sessions" or "bandwidth"
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Endpoint to try instead, or null if none is configured
+     */
+    public String getRedirectUrl() {
+        return redirectUrl;
+    }
+}
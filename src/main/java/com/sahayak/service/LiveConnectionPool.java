@@ -0,0 +1,205 @@
+package com.sahayak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.config.ExecutorConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of connected Gemini Live sockets.
+ *
+ * With live.pool.size > 0, that many sockets are kept connected (TLS and
+ * WebSocket handshake done) but not yet set up, so a new session only pays
+ * for the setup round trip. Gemini expects the setup message first, so pooled
+ * sockets are discarded after live.pool.max-idle-seconds and replaced. When
+ * the pool is empty or disabled a new connection is opened on demand.
+ */
+@Component
+public class LiveConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveConnectionPool.class);
+
+    @Value("${gemini.api.key}")
+    private String geminiApiKey;
+
+    @Value("${gemini.api.url}")
+    private String geminiApiUrl;
+
+    @Value("${live.pool.size:0}")
+    private int poolSize;
+
+    @Value("${live.pool.max-idle-seconds:60}")
+    private long maxIdleSeconds;
+
+    @Value("${live.input-queue.max-messages:100}")
+    private int inputQueueCapacity;
+
+    @Value("${live.setup-timeout-seconds:15}")
+    private long liveSetupTimeoutSeconds;
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LiveRelayLogging relayLogging;
+    private final Executor liveSessionExecutor;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    // Idle plus in-flight connections, so concurrent refills don't overshoot the pool size
+    private final AtomicInteger pooledCount = new AtomicInteger();
+    private final AtomicLong poolSequence = new AtomicLong();
+    private volatile boolean shuttingDown = false;
+
+    public LiveConnectionPool(ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                              LiveRelayLogging relayLogging, MeterRegistry meterRegistry,
+                              @Qualifier(ExecutorConfig.LIVE_SESSION_EXECUTOR) Executor liveSessionExecutor) {
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.relayLogging = relayLogging;
+        this.liveSessionExecutor = liveSessionExecutor;
+        meterRegistry.gauge("live.pool.idle", this, LiveConnectionPool::getIdleCount);
+    }
+
+    /**
+     * Get a socket for a session: a warm one from the pool, or a new one that
+     * is still connecting (see getConnectionFuture)
+     */
+    public GeminiLiveWebSocketClient acquire(String label) {
+        GeminiLiveWebSocketClient pooled = pollIdle();
+        refill();
+
+        if (pooled != null) {
+            logger.debug("Using pooled Live connection for {}", label);
+            pooled.setRelayLabel(label);
+            return pooled;
+        }
+
+        GeminiLiveWebSocketClient client = newClient(label);
+        client.connectAsync();
+        return client;
+    }
+
+    public boolean isEnabled() {
+        return poolSize > 0;
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Top the pool up to its configured size in the background
+     */
+    public void refill() {
+        if (!isEnabled() || shuttingDown) {
+            return;
+        }
+
+        while (true) {
+            int current = pooledCount.get();
+            if (current >= poolSize) {
+                return;
+            }
+            if (!pooledCount.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            try {
+                liveSessionExecutor.execute(this::openPooledConnection);
+            } catch (RuntimeException e) {
+                // Executor saturated by real sessions; try again on the next acquire
+                pooledCount.decrementAndGet();
+                logger.debug("Skipping Live pool refill: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replace idle sockets that expired or were closed by the server
+     */
+    @Scheduled(fixedDelayString = "${live.pool.maintenance-interval-ms:10000}")
+    public void maintain() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : idleConnections) {
+            boolean stale = now - connection.connectedAt > maxIdleSeconds * 1000 || !connection.client.isOpen();
+            // remove() fails if acquire() took the connection in the meantime
+            if (stale && idleConnections.remove(connection)) {
+                pooledCount.decrementAndGet();
+                connection.client.close();
+            }
+        }
+        refill();
+    }
+
+    private void openPooledConnection() {
+        GeminiLiveWebSocketClient client = newClient("pool-" + poolSequence.incrementAndGet());
+        try {
+            client.connectAsync().get(liveSetupTimeoutSeconds, TimeUnit.SECONDS);
+            idleConnections.addLast(new PooledConnection(client, System.currentTimeMillis()));
+        } catch (TimeoutException e) {
+            pooledCount.decrementAndGet();
+            logger.warn("Pooled Live connection not established within {}s", liveSetupTimeoutSeconds);
+            client.close();
+        } catch (Exception e) {
+            pooledCount.decrementAndGet();
+            logger.warn("Failed to open pooled Live connection: {}", e.getMessage());
+            client.close();
+        }
+    }
+
+    private GeminiLiveWebSocketClient pollIdle() {
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            pooledCount.decrementAndGet();
+            boolean expired = System.currentTimeMillis() - connection.connectedAt > maxIdleSeconds * 1000;
+            if (!expired && connection.client.isOpen()) {
+                return connection.client;
+            }
+            connection.client.close();
+        }
+        return null;
+    }
+
+    private GeminiLiveWebSocketClient newClient(String label) {
+        GeminiLiveWebSocketClient client = new GeminiLiveWebSocketClient(geminiApiUrl, geminiApiKey,
+            objectMapper, eventPublisher, relayLogging.forSession(label));
+        client.setInputQueueCapacity(inputQueueCapacity);
+        return client;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.client.close();
+        }
+    }
+
+    private static class PooledConnection {
+        private final GeminiLiveWebSocketClient client;
+        private final long connectedAt;
+
+        PooledConnection(GeminiLiveWebSocketClient client, long connectedAt) {
+            this.client = client;
+            this.connectedAt = connectedAt;
+        }
+    }
+}
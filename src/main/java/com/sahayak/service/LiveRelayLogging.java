@@ -0,0 +1,180 @@
+package com.sahayak.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logging for the Gemini Live relay hot path.
+ *
+ * Live messages carry hundreds of KB of base64 audio, so they are never dumped
+ * in full. Each connection counts messages and bytes instead, and only every
+ * Nth payload is logged at DEBUG, truncated to a fixed size. Payload previews
+ * are only built when DEBUG is enabled and the message is sampled.
+ */
+@Component
+public class LiveRelayLogging {
+
+    private static final Logger logger = LoggerFactory.getLogger("com.sahayak.live.relay");
+
+    @Value("${live.relay.log.sample-rate:100}")
+    private int sampleRate;
+
+    @Value("${live.relay.log.max-payload-chars:512}")
+    private int maxPayloadChars;
+
+    private final Counter inboundMessages;
+    private final Counter inboundBytes;
+    private final Counter outboundMessages;
+    private final Counter outboundBytes;
+
+    public LiveRelayLogging(MeterRegistry meterRegistry) {
+        this.inboundMessages = Counter.builder("live.relay.messages").tag("direction", "inbound")
+            .description("Messages relayed on Gemini Live connections").register(meterRegistry);
+        this.inboundBytes = Counter.builder("live.relay.payload").tag("direction", "inbound")
+            .baseUnit("chars").description("Payload size relayed on Gemini Live connections").register(meterRegistry);
+        this.outboundMessages = Counter.builder("live.relay.messages").tag("direction", "outbound")
+            .description("Messages relayed on Gemini Live connections").register(meterRegistry);
+        this.outboundBytes = Counter.builder("live.relay.payload").tag("direction", "outbound")
+            .baseUnit("chars").description("Payload size relayed on Gemini Live connections").register(meterRegistry);
+    }
+
+    /**
+     * Create the relay log of one Live connection
+     */
+    public SessionLog forSession(String label) {
+        return new SessionLog(label, this);
+    }
+
+    /**
+     * Relay log of a connection that is not tracked (no metrics, sampled payloads only)
+     */
+    public static SessionLog untracked(String label) {
+        return new SessionLog(label, null);
+    }
+
+    /**
+     * Truncate a payload for logging, keeping its total length visible
+     */
+    static String preview(CharSequence payload, int maxChars) {
+        if (payload == null) {
+            return "null";
+        }
+        if (payload.length() <= maxChars) {
+            return payload.toString();
+        }
+        return payload.subSequence(0, maxChars) + "... (" + payload.length() + " chars)";
+    }
+
+    public static class SessionLog {
+        private volatile String label;
+        private final LiveRelayLogging owner;
+        private final int sampleRate;
+        private final int maxPayloadChars;
+
+        private final AtomicLong inboundMessages = new AtomicLong();
+        private final AtomicLong inboundChars = new AtomicLong();
+        private final AtomicLong outboundMessages = new AtomicLong();
+        private final AtomicLong outboundChars = new AtomicLong();
+        private final AtomicLong audioChunks = new AtomicLong();
+        private final AtomicLong textParts = new AtomicLong();
+        private final AtomicLong queuedInputs = new AtomicLong();
+        private final AtomicLong droppedInputs = new AtomicLong();
+
+        SessionLog(String label, LiveRelayLogging owner) {
+            this.label = label;
+            this.owner = owner;
+            this.sampleRate = owner != null ? Math.max(1, owner.sampleRate) : 100;
+            this.maxPayloadChars = owner != null ? owner.maxPayloadChars : 512;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public void inbound(CharSequence payload) {
+            long count = countInbound(payload.length());
+            if (isSampled(count)) {
+                logger.debug("[{}] in #{}: {}", label, count, preview(payload));
+            }
+        }
+
+        /**
+         * Count a binary (UTF-8 JSON) message; it is only decoded if it is sampled for logging
+         */
+        public void inbound(ByteBuffer payload) {
+            long count = countInbound(payload.remaining());
+            if (isSampled(count)) {
+                logger.debug("[{}] in #{}: {}", label, count, preview(StandardCharsets.UTF_8.decode(payload.duplicate())));
+            }
+        }
+
+        private long countInbound(int length) {
+            inboundChars.addAndGet(length);
+            if (owner != null) {
+                owner.inboundMessages.increment();
+                owner.inboundBytes.increment(length);
+            }
+            return inboundMessages.incrementAndGet();
+        }
+
+        public void outbound(String kind, int payloadLength) {
+            long count = outboundMessages.incrementAndGet();
+            outboundChars.addAndGet(payloadLength);
+            if (owner != null) {
+                owner.outboundMessages.increment();
+                owner.outboundBytes.increment(payloadLength);
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("[{}] out #{} {} ({} chars)", label, count, kind, payloadLength);
+            }
+        }
+
+        public void audioChunk() {
+            audioChunks.incrementAndGet();
+        }
+
+        public void textPart() {
+            textParts.incrementAndGet();
+        }
+
+        /**
+         * Client input buffered because the session was not ready yet
+         */
+        public void inputQueued() {
+            queuedInputs.incrementAndGet();
+        }
+
+        public void inputDropped() {
+            if (droppedInputs.incrementAndGet() == 1) {
+                logger.warn("[{}] input queue full before session ready, dropping oldest input", label);
+            }
+        }
+
+        /**
+         * Truncated form of a payload, for the occasional log line that needs content
+         */
+        public String preview(CharSequence payload) {
+            return LiveRelayLogging.preview(payload, maxPayloadChars);
+        }
+
+        public void logSummary() {
+            logger.info("[{}] relay totals: in={} msgs/{} chars, out={} msgs/{} chars, audioChunks={}, textParts={}, "
+                    + "queuedBeforeReady={}, droppedBeforeReady={}",
+                label, inboundMessages.get(), inboundChars.get(), outboundMessages.get(), outboundChars.get(),
+                audioChunks.get(), textParts.get(), queuedInputs.get(), droppedInputs.get());
+        }
+
+        private boolean isSampled(long count) {
+            // Always show the first message (usually setupComplete), then one in sampleRate
+            return logger.isDebugEnabled() && (count == 1 || count % sampleRate == 0);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.sahayak.service;
+
+import com.sahayak.model.LiveConfig;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * One teacher, prompt-creator or Udaan session and its Gemini Live
+ * connections.
+ *
+ * The text and audio clients are the same object in single-connection mode,
+ * and there is no audio client for text-only sessions. Last activity is the
+ * last client input; the owner is whatever drives the session (a browser
+ * WebSocket) and is used to detect sessions nobody can reach anymore.
+ *
+ * A hibernated session has closed its Live connections and released its
+ * admission capacity, but keeps their setup and resumption handles, so the
+ * next input can reconnect it. Clients are swapped and hibernation state
+ * changes only while holding the session's monitor.
+ */
+public class LiveSession {
+
+    private final String id;
+    private final String type;
+    private final LiveConfig textConfig;
+    private final LiveConfig audioConfig;
+    private final boolean sharedConnection;
+    private final long createdAtNanos;
+
+    private volatile GeminiLiveWebSocketClient textClient;
+    private volatile GeminiLiveWebSocketClient audioClient;
+    private volatile long lastActivityNanos;
+    private volatile String ownerId;
+    private volatile BooleanSupplier ownerAlive;
+    // Told why, when the session is closed by anyone but its owner
+    private volatile Consumer<String> ownerNotifier;
+    // When the owner was first seen gone; 0 while it is alive
+    private volatile long ownerLostAtNanos;
+
+    // Written while holding "this"; hibernated is also read without it
+    private volatile boolean hibernated;
+    private String textResumptionHandle;
+    private String audioResumptionHandle;
+    private boolean closed;
+    // Returns the session's admission capacity; already run while hibernated
+    private Runnable releaseCapacity;
+
+    LiveSession(String id, String type, GeminiLiveWebSocketClient textClient, GeminiLiveWebSocketClient audioClient,
+                LiveConfig textConfig, LiveConfig audioConfig, Runnable releaseCapacity) {
+        this.id = id;
+        this.type = type;
+        this.textClient = textClient;
+        this.audioClient = audioClient;
+        this.textConfig = textConfig;
+        this.audioConfig = audioConfig;
+        this.sharedConnection = textClient == audioClient;
+        this.createdAtNanos = System.nanoTime();
+        this.releaseCapacity = releaseCapacity;
+        this.lastActivityNanos = createdAtNanos;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public GeminiLiveWebSocketClient getTextClient() {
+        return textClient;
+    }
+
+    public GeminiLiveWebSocketClient getAudioClient() {
+        return audioClient;
+    }
+
+    public LiveConfig getTextConfig() {
+        return textConfig;
+    }
+
+    public LiveConfig getAudioConfig() {
+        return audioConfig;
+    }
+
+    /**
+     * True in single-connection mode, where one client serves text and audio
+     */
+    public boolean isSharedConnection() {
+        return sharedConnection;
+    }
+
+    public boolean isHibernated() {
+        return hibernated;
+    }
+
+    public synchronized String getTextResumptionHandle() {
+        return textResumptionHandle;
+    }
+
+    public synchronized String getAudioResumptionHandle() {
+        return audioResumptionHandle;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Distinct Live connections of this session
+     */
+    public List<GeminiLiveWebSocketClient> getClients() {
+        if (audioClient == null || audioClient == textClient) {
+            return List.of(textClient);
+        }
+        return List.of(textClient, audioClient);
+    }
+
+    public void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    public long getIdleNanos(long nowNanos) {
+        return nowNanos - lastActivityNanos;
+    }
+
+    public long getAgeNanos(long nowNanos) {
+        return nowNanos - createdAtNanos;
+    }
+
+    /**
+     * Bind the session to the client driving it; the liveness check is polled
+     * by the registry's reaper
+     */
+    void setOwner(String ownerId, BooleanSupplier ownerAlive, Consumer<String> ownerNotifier) {
+        this.ownerId = ownerId;
+        this.ownerAlive = ownerAlive;
+        this.ownerNotifier = ownerNotifier;
+        this.ownerLostAtNanos = 0;
+    }
+
+    /**
+     * Tell the owner, if any, that the session was closed without it asking
+     */
+    void notifyOwnerClosed(String reason) {
+        Consumer<String> notifier = ownerNotifier;
+        if (notifier != null) {
+            notifier.accept(reason);
+        }
+    }
+
+    /**
+     * How long the owner has been gone, or -1 if the session has no owner or
+     * it is still alive
+     */
+    long checkOwnerLost(long nowNanos) {
+        BooleanSupplier alive = ownerAlive;
+        if (alive == null || alive.getAsBoolean()) {
+            ownerLostAtNanos = 0;
+            return -1;
+        }
+        if (ownerLostAtNanos == 0) {
+            ownerLostAtNanos = nowNanos;
+        }
+        return nowNanos - ownerLostAtNanos;
+    }
+
+    /**
+     * True once every connection is closed, e.g. by the server
+     */
+    public boolean isClosed() {
+        if (hibernated) {
+            return false;
+        }
+        for (GeminiLiveWebSocketClient client : getClients()) {
+            if (client.getState() != LiveSessionState.CLOSED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True if the session has an audio connection, i.e. is admitted as an
+     * audio session
+     */
+    public boolean hasAudio() {
+        return audioConfig != null;
+    }
+
+    /**
+     * Close the Live connections and release the admission capacity, but
+     * remember how to resume them
+     */
+    synchronized void hibernate() {
+        if (hibernated || closed) {
+            return;
+        }
+        textResumptionHandle = textClient.getResumptionHandle();
+        audioResumptionHandle = audioClient != null ? audioClient.getResumptionHandle() : null;
+        hibernated = true;
+        for (GeminiLiveWebSocketClient client : getClients()) {
+            client.close();
+        }
+        releaseCapacity.run();
+    }
+
+    /**
+     * Install the connections that replace the hibernated ones, together with
+     * the capacity re-admitted for them; false if the session was closed
+     * meanwhile, in which case the caller closes them and releases the capacity
+     */
+    synchronized boolean resume(GeminiLiveWebSocketClient textClient, GeminiLiveWebSocketClient audioClient,
+                                Runnable releaseCapacity) {
+        if (closed) {
+            return false;
+        }
+        this.textClient = textClient;
+        this.audioClient = audioClient;
+        this.releaseCapacity = releaseCapacity;
+        hibernated = false;
+        return true;
+    }
+
+    /**
+     * Swap in new connections for ones that failed to come up, e.g. a resume
+     * with an expired handle; false if the session was closed or its
+     * connections were replaced meanwhile, in which case the caller closes them
+     */
+    synchronized boolean replaceClients(GeminiLiveWebSocketClient expectedTextClient,
+                                        GeminiLiveWebSocketClient textClient, GeminiLiveWebSocketClient audioClient) {
+        if (closed || hibernated || this.textClient != expectedTextClient) {
+            return false;
+        }
+        for (GeminiLiveWebSocketClient client : getClients()) {
+            client.close();
+        }
+        this.textClient = textClient;
+        this.audioClient = audioClient;
+        return true;
+    }
+
+    synchronized void close() {
+        closed = true;
+        hibernated = false;
+        for (GeminiLiveWebSocketClient client : getClients()) {
+            client.close();
+        }
+        releaseCapacity.run();
+    }
+}
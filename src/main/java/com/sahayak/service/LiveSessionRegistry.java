@@ -0,0 +1,279 @@
+package com.sahayak.service;
+
+import com.sahayak.model.LiveConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * All Live sessions of this instance, and the reaper that cleans up the ones
+ * nobody closed.
+ *
+ * Sessions are normally closed by their WebSocket handler or a REST DELETE.
+ * The reaper also closes sessions idle for live.session.idle-timeout-seconds,
+ * sessions whose owner has been gone for live.session.orphan-grace-seconds
+ * (e.g. the browser disconnected while the session was being created) and
+ * drops sessions whose connections were all closed by the server. The
+ * owner of a session closed for being idle or closed by the server is told
+ * so, so it stops sending input to a session that no longer exists.
+ *
+ * With live.hibernation.idle-seconds > 0, sessions idle that long are
+ * hibernated first: their Live connections are closed, their admission
+ * capacity is released, and both are taken again on the next input (see
+ * SahayakTeacherService). A hibernated session whose owner is still
+ * connected is exempt from the idle timeout, since it holds no upstream
+ * connection.
+ */
+@Component
+public class LiveSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveSessionRegistry.class);
+
+    @Value("${live.session.idle-timeout-seconds:900}")
+    private long idleTimeoutSeconds;
+
+    // Only used for the idle gauge
+    @Value("${live.session.idle-after-seconds:60}")
+    private long idleAfterSeconds;
+
+    @Value("${live.session.orphan-grace-seconds:30}")
+    private long orphanGraceSeconds;
+
+    @Value("${live.hibernation.idle-seconds:0}")
+    private long hibernateAfterSeconds;
+
+    private final Map<String, LiveSession> sessions = new ConcurrentHashMap<>();
+    private final VideoFrameGovernor videoFrameGovernor;
+    private final SessionDirectory sessionDirectory;
+
+    private final Counter reapedIdle;
+    private final Counter reapedOrphaned;
+    private final Counter reapedClosed;
+    private final Counter hibernatedSessions;
+
+    public LiveSessionRegistry(VideoFrameGovernor videoFrameGovernor, SessionDirectory sessionDirectory,
+                               MeterRegistry meterRegistry) {
+        this.videoFrameGovernor = videoFrameGovernor;
+        this.sessionDirectory = sessionDirectory;
+
+        sessionGauge(meterRegistry, "active", registry -> registry.sessions.size());
+        sessionGauge(meterRegistry, "idle", LiveSessionRegistry::countIdle);
+        sessionGauge(meterRegistry, "orphaned", LiveSessionRegistry::countOrphaned);
+        sessionGauge(meterRegistry, "hibernated", LiveSessionRegistry::countHibernated);
+        socketGauge(meterRegistry, "open", registry -> registry.countSockets(false));
+        // Closed connections still registered: leaked until the next reaper run
+        socketGauge(meterRegistry, "closed", registry -> registry.countSockets(true));
+
+        this.reapedIdle = reapedCounter(meterRegistry, "idle");
+        this.reapedOrphaned = reapedCounter(meterRegistry, "orphaned");
+        this.reapedClosed = reapedCounter(meterRegistry, "closed");
+        this.hibernatedSessions = Counter.builder("live.sessions.hibernated")
+            .description("Idle Live sessions whose upstream connections were closed for later resumption")
+            .register(meterRegistry);
+    }
+
+    public LiveSession register(String sessionId, String type, GeminiLiveWebSocketClient textClient,
+                                GeminiLiveWebSocketClient audioClient, LiveConfig textConfig, LiveConfig audioConfig,
+                                Runnable releaseCapacity) {
+        LiveSession session = new LiveSession(sessionId, type, textClient, audioClient, textConfig, audioConfig,
+            releaseCapacity);
+        sessions.put(sessionId, session);
+        sessionDirectory.register(sessionId);
+        return session;
+    }
+
+    public boolean isHibernationEnabled() {
+        return hibernateAfterSeconds > 0;
+    }
+
+    public LiveSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Collection<LiveSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Bind a session to the client driving it. The reaper closes the session
+     * once ownerAlive has been false for the orphan grace period, and passes
+     * the reason to onClosed when it closes the session for any other reason.
+     */
+    public boolean attachOwner(String sessionId, String ownerId, BooleanSupplier ownerAlive,
+                               Consumer<String> onClosed) {
+        LiveSession session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.setOwner(ownerId, ownerAlive, onClosed);
+        return true;
+    }
+
+    /**
+     * Remove a session and close its connections; a no-op if it is already gone
+     */
+    public LiveSession close(String sessionId) {
+        LiveSession session = sessions.remove(sessionId);
+        if (session != null) {
+            release(session);
+        }
+        return session;
+    }
+
+    /**
+     * Close a session on behalf of the service rather than its owner, and
+     * tell the owner why
+     */
+    public void closeAndNotify(String sessionId, String reason) {
+        LiveSession session = close(sessionId);
+        if (session != null) {
+            session.notifyOwnerClosed(reason);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${live.session.reaper-interval-ms:30000}")
+    public void reap() {
+        long now = System.nanoTime();
+        long idleTimeout = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        long orphanGrace = TimeUnit.SECONDS.toNanos(orphanGraceSeconds);
+        long hibernateAfter = TimeUnit.SECONDS.toNanos(hibernateAfterSeconds);
+
+        for (LiveSession session : sessions.values()) {
+            if (session.isClosed()) {
+                logger.warn("Removing {} session {}: all Live connections are closed", session.getType(), session.getId());
+                reap(session, reapedClosed, "Connection to the assistant was closed");
+            } else if (session.checkOwnerLost(now) >= orphanGrace) {
+                logger.warn("Closing orphaned {} session {}: owner {} is gone", session.getType(), session.getId(), session.getOwnerId());
+                reap(session, reapedOrphaned, null);
+            } else if (idleTimeoutSeconds > 0 && session.getIdleNanos(now) >= idleTimeout
+                    && !(session.isHibernated() && session.getOwnerId() != null)) {
+                logger.info("Closing {} session {} after {}s without input", session.getType(), session.getId(),
+                    TimeUnit.NANOSECONDS.toSeconds(session.getIdleNanos(now)));
+                reap(session, reapedIdle, "Session closed after inactivity");
+            } else if (isHibernationEnabled() && !session.isHibernated() && session.getIdleNanos(now) >= hibernateAfter) {
+                hibernate(session, hibernateAfter);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String sessionId : sessions.keySet()) {
+            close(sessionId);
+        }
+    }
+
+    private void reap(LiveSession session, Counter reason, String ownerNotice) {
+        // remove(key, value) so a session closed concurrently is not counted
+        if (sessions.remove(session.getId(), session)) {
+            release(session);
+            reason.increment();
+            if (ownerNotice != null) {
+                session.notifyOwnerClosed(ownerNotice);
+            }
+        }
+    }
+
+    private void hibernate(LiveSession session, long hibernateAfter) {
+        synchronized (session) {
+            // Input may have arrived since the check; the service touches the session under the same lock
+            if (session.isHibernated() || session.getIdleNanos(System.nanoTime()) < hibernateAfter) {
+                return;
+            }
+            logger.info("Hibernating {} session {} (resumable: {})", session.getType(), session.getId(),
+                session.getTextClient().getResumptionHandle() != null);
+            videoFrameGovernor.release(session.getId());
+            session.hibernate();
+        }
+        hibernatedSessions.increment();
+    }
+
+    private void release(LiveSession session) {
+        sessionDirectory.unregister(session.getId());
+        videoFrameGovernor.release(session.getId());
+        session.close();
+    }
+
+    private int countIdle() {
+        long now = System.nanoTime();
+        long idleAfter = TimeUnit.SECONDS.toNanos(idleAfterSeconds);
+        int count = 0;
+        for (LiveSession session : sessions.values()) {
+            if (session.getIdleNanos(now) >= idleAfter) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countOrphaned() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (LiveSession session : sessions.values()) {
+            if (session.checkOwnerLost(now) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countHibernated() {
+        int count = 0;
+        for (LiveSession session : sessions.values()) {
+            if (session.isHibernated()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countSockets(boolean closed) {
+        int count = 0;
+        for (LiveSession session : sessions.values()) {
+            if (session.isHibernated()) {
+                continue;
+            }
+            for (GeminiLiveWebSocketClient client : session.getClients()) {
+                if ((client.getState() == LiveSessionState.CLOSED) == closed) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void sessionGauge(MeterRegistry meterRegistry, String state, ToDoubleFunction<LiveSessionRegistry> value) {
+        Gauge.builder("live.sessions", this, value)
+            .tag("state", state)
+            .description("Registered Live sessions")
+            .register(meterRegistry);
+    }
+
+    private void socketGauge(MeterRegistry meterRegistry, String state, ToDoubleFunction<LiveSessionRegistry> value) {
+        Gauge.builder("live.sockets", this, value)
+            .tag("state", state)
+            .description("Gemini Live connections of registered sessions")
+            .register(meterRegistry);
+    }
+
+    private static Counter reapedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("live.sessions.reaped")
+            .tag("reason", reason)
+            .description("Live sessions closed by the reaper instead of their owner")
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.sahayak.service;
+
+/**
+ * Lifecycle of a Gemini Live connection.
+ *
+ * Client input is queued until the connection is READY and rejected once it
+ * is CLOSING or CLOSED.
+ */
+public enum LiveSessionState {
+    CONNECTING,
+    SETUP_SENT,
+    READY,
+    CLOSING,
+    CLOSED;
+
+    public boolean acceptsInput() {
+        return this != CLOSING && this != CLOSED;
+    }
+}
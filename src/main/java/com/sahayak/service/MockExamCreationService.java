@@ -23,7 +23,7 @@ public class MockExamCreationService extends ExamCreationService {
 
     public MockExamCreationService(ExamTypeStrategyFactory strategyFactory) {
         // Call the parent constructor with null parameters since we won't be using them
-        super(null, null, strategyFactory);
+        super(null, null, strategyFactory, null, null);
         this.strategyFactory = strategyFactory;
     }
 
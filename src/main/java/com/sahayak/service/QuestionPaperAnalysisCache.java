@@ -0,0 +1,176 @@
+package com.sahayak.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.model.QuestionPaperAnalysisResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of question paper analyses.
+ *
+ * Entries are keyed by the SHA-256 of the uploaded document bytes plus the
+ * normalized subject, so the same paper uploaded once per student is only
+ * analyzed by Gemini the first time; concurrent uploads of a paper not yet
+ * cached share one analysis. The cache is LRU bounded with a TTL and can
+ * optionally be persisted to a directory so it survives restarts.
+ */
+@Component
+public class QuestionPaperAnalysisCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionPaperAnalysisCache.class);
+
+    private static final String FILE_SUFFIX = ".json";
+
+    @Value("${worksheet.analysis-cache.enabled:true}")
+    private boolean enabled;
+
+    // Empty means in-memory only
+    @Value("${worksheet.analysis-cache.persistence-dir:}")
+    private String persistenceDir;
+
+    private final ObjectMapper objectMapper;
+    private final TtlLruCache<String, QuestionPaperAnalysisResult> cache;
+
+    public QuestionPaperAnalysisCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                      @Value("${worksheet.analysis-cache.max-entries:500}") int maxEntries,
+                                      @Value("${worksheet.analysis-cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.objectMapper = objectMapper;
+        // Only fully successful analyses are stored
+        this.cache = new TtlLruCache<>("worksheet.analysis.cache", "Question paper analysis cache",
+            maxEntries, ttlMinutes, result -> "success".equals(result.getStatus()), this::deletePersistedEntry,
+            meterRegistry);
+    }
+
+    @PostConstruct
+    void loadPersistedEntries() {
+        File directory = getPersistenceDirectory();
+        if (!enabled || directory == null) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warn("Could not create analysis cache directory {}, persistence disabled", directory);
+            persistenceDir = "";
+            return;
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+
+        // Oldest first so the most recently written entries end up most recently used
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        int loaded = 0;
+        for (File file : files) {
+            String key = file.getName().substring(0, file.getName().length() - FILE_SUFFIX.length());
+            if (cache.isExpired(file.lastModified())) {
+                deletePersistedEntry(key);
+                continue;
+            }
+            try {
+                cache.put(key, objectMapper.readValue(file, QuestionPaperAnalysisResult.class), file.lastModified());
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable analysis cache file {}: {}", file.getName(), e.getMessage());
+                continue;
+            }
+            loaded++;
+        }
+        logger.info("Loaded {} question paper analyses from {}", loaded, directory);
+    }
+
+    /**
+     * Compute the cache key for a question paper, or null if caching is disabled.
+     * The document is hashed from its input stream without loading it into memory.
+     */
+    public String keyFor(MultipartFile questionPaper, String subject) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+
+        MessageDigest digest = newSha256();
+        try (InputStream inputStream = questionPaper.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update((byte) 0);
+        String normalizedSubject = subject == null ? "" : subject.trim().toLowerCase(Locale.ROOT);
+        digest.update(normalizedSubject.getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Get the cached analysis, or start the analyzer once for all concurrent
+     * callers with the same key. A null key (caching disabled) always analyzes.
+     * Callers compose on the returned future instead of waiting for a shared
+     * analysis on a thread.
+     */
+    public CompletableFuture<QuestionPaperAnalysisResult> get(String key,
+                                                              Supplier<CompletableFuture<QuestionPaperAnalysisResult>> analyzer) {
+        return cache.getAsync(key, () -> analyzer.get().thenApply(result -> {
+            if (key != null && result != null && "success".equals(result.getStatus())) {
+                persist(key, result);
+            }
+            return result;
+        }));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private void persist(String key, QuestionPaperAnalysisResult result) {
+        File directory = getPersistenceDirectory();
+        if (directory != null) {
+            try {
+                objectMapper.writeValue(new File(directory, key + FILE_SUFFIX), result);
+            } catch (IOException e) {
+                logger.warn("Failed to persist question paper analysis {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private File getPersistenceDirectory() {
+        return persistenceDir == null || persistenceDir.isBlank() ? null : new File(persistenceDir);
+    }
+
+    private void deletePersistedEntry(String key) {
+        File directory = getPersistenceDirectory();
+        if (directory != null) {
+            File file = new File(directory, key + FILE_SUFFIX);
+            if (file.exists() && !file.delete()) {
+                logger.debug("Could not delete analysis cache file {}", file.getName());
+            }
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
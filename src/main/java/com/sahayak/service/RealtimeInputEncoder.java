@@ -0,0 +1,137 @@
+package com.sahayak.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes media into Gemini Live realtimeInput messages, producing the same
+ * JSON as GeminiMessages.RealtimeInputMessage without building it.
+ *
+ * The payload (raw bytes, base64 encoded on the fly, or already base64 text)
+ * is written between a fixed JSON prefix and suffix into a buffer that is
+ * reused for every message of the connection. The returned buffer is only
+ * valid until the next encode call, so callers must send it before encoding
+ * again.
+ */
+public class RealtimeInputEncoder {
+
+    public static final String AUDIO_MIME_TYPE = "audio/pcm;rate=16000";
+    public static final String VIDEO_MIME_TYPE = "image/jpeg";
+
+    private static final byte[] AUDIO_PREFIX = prefixFor(AUDIO_MIME_TYPE);
+    private static final byte[] VIDEO_PREFIX = prefixFor(VIDEO_MIME_TYPE);
+    private static final byte[] SUFFIX = "\"}]}}".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    // Large enough for ~100 ms of 16 kHz PCM without growing
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    public ByteBuffer encodeAudio(ByteBuffer pcm) {
+        return encode(AUDIO_PREFIX, pcm);
+    }
+
+    public ByteBuffer encodeVideo(ByteBuffer jpeg) {
+        return encode(VIDEO_PREFIX, jpeg);
+    }
+
+    /**
+     * Wrap audio that is already base64 encoded, e.g. from a JSON client message
+     */
+    public ByteBuffer encodeAudio(CharSequence base64Pcm) {
+        return encode(AUDIO_PREFIX, base64Pcm);
+    }
+
+    public ByteBuffer encodeVideo(CharSequence base64Jpeg) {
+        return encode(VIDEO_PREFIX, base64Jpeg);
+    }
+
+    private ByteBuffer encode(byte[] prefix, CharSequence base64) {
+        int dataLength = base64.length();
+        int length = prefix.length + dataLength + SUFFIX.length;
+        ensureCapacity(length);
+
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        int offset = prefix.length;
+        for (int i = 0; i < dataLength; i++) {
+            char c = base64.charAt(i);
+            // Only base64 characters may go into the template unescaped
+            if (!isBase64Char(c)) {
+                throw new IllegalArgumentException("Media data is not valid base64");
+            }
+            buffer[offset++] = (byte) c;
+        }
+        System.arraycopy(SUFFIX, 0, buffer, offset, SUFFIX.length);
+
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+
+    private ByteBuffer encode(byte[] prefix, ByteBuffer media) {
+        int mediaLength = media.remaining();
+        int length = prefix.length + base64Length(mediaLength) + SUFFIX.length;
+        ensureCapacity(length);
+
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        int offset = encodeBase64(media, buffer, prefix.length);
+        System.arraycopy(SUFFIX, 0, buffer, offset, SUFFIX.length);
+
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int length) {
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+    }
+
+    private static boolean isBase64Char(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+            || c == '+' || c == '/' || c == '=' || c == '-' || c == '_';
+    }
+
+    private static int base64Length(int length) {
+        return 4 * ((length + 2) / 3);
+    }
+
+    /**
+     * Standard padded base64 of the remaining bytes of src into dst at offset;
+     * returns the offset after the last written byte. src is not consumed.
+     */
+    private static int encodeBase64(ByteBuffer src, byte[] dst, int offset) {
+        int position = src.position();
+        int end = src.limit();
+        int out = offset;
+
+        while (end - position >= 3) {
+            int bits = (src.get(position) & 0xff) << 16
+                | (src.get(position + 1) & 0xff) << 8
+                | (src.get(position + 2) & 0xff);
+            position += 3;
+            dst[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3f];
+            dst[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+            dst[out++] = BASE64_ALPHABET[(bits >>> 6) & 0x3f];
+            dst[out++] = BASE64_ALPHABET[bits & 0x3f];
+        }
+
+        int remaining = end - position;
+        if (remaining > 0) {
+            int bits = (src.get(position) & 0xff) << 16;
+            if (remaining == 2) {
+                bits |= (src.get(position + 1) & 0xff) << 8;
+            }
+            dst[out++] = BASE64_ALPHABET[(bits >>> 18) & 0x3f];
+            dst[out++] = BASE64_ALPHABET[(bits >>> 12) & 0x3f];
+            dst[out++] = remaining == 2 ? BASE64_ALPHABET[(bits >>> 6) & 0x3f] : (byte) '=';
+            dst[out++] = '=';
+        }
+        return out;
+    }
+
+    private static byte[] prefixFor(String mimeType) {
+        return ("{\"realtimeInput\":{\"mediaChunks\":[{\"mimeType\":\"" + mimeType + "\",\"data\":\"")
+            .getBytes(StandardCharsets.US_ASCII);
+    }
+}
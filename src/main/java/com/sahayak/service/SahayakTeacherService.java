@@ -2,9 +2,14 @@ package com.sahayak.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.config.ExecutorConfig;
 import com.sahayak.model.LiveConfig;
+import com.sahayak.service.gemini.GeminiHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpEntity;
@@ -15,18 +20,20 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 @Service
 public class SahayakTeacherService {
@@ -36,8 +43,12 @@ public class SahayakTeacherService {
     @Value("${gemini.api.key}")
     private String geminiApiKey;
     
-    @Value("${gemini.api.url}")
-    private String geminiApiUrl;
+    @Value("${live.setup-timeout-seconds:15}")
+    private long liveSetupTimeoutSeconds;
+    
+    // dual: separate TEXT and AUDIO connections; single: one AUDIO connection with output transcription
+    @Value("${live.teacher.connection-mode:dual}")
+    private String teacherConnectionMode;
     
     @Value("${gemini.api.model}")
     private String geminiModel;
@@ -47,17 +58,36 @@ public class SahayakTeacherService {
     
     private final ObjectMapper objectMapper;
     private final ApplicationEventPublisher eventPublisher;
-    
-    // Dual connection approach: separate connections for text and audio
-    private final Map<String, GeminiLiveWebSocketClient> textSessions = new ConcurrentHashMap<>();
-    private final Map<String, GeminiLiveWebSocketClient> audioSessions = new ConcurrentHashMap<>();
-    
-    // Track screen sharing state per session
-    private final Map<String, Boolean> screenSharingStates = new ConcurrentHashMap<>();
-    
-    public SahayakTeacherService(ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+    private final GeminiHttpClient geminiHttpClient;
+    private final HttpClient httpClient;
+    private final Executor videoExecutor;
+    private final Executor llmExecutor;
+    private final LiveConnectionPool liveConnectionPool;
+    private final VideoFrameGovernor videoFrameGovernor;
+    private final LiveSessionRegistry sessionRegistry;
+    private final LiveAdmissionControl admissionControl;
+    private final MeterRegistry meterRegistry;
+    
+    public SahayakTeacherService(ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                                 GeminiHttpClient geminiHttpClient,
+                                 @Qualifier(ExecutorConfig.VIDEO_EXECUTOR) Executor videoExecutor,
+                                 @Qualifier(ExecutorConfig.LLM_EVALUATION_EXECUTOR) Executor llmExecutor,
+                                 LiveConnectionPool liveConnectionPool,
+                                 VideoFrameGovernor videoFrameGovernor,
+                                 LiveSessionRegistry sessionRegistry,
+                                 LiveAdmissionControl admissionControl,
+                                 MeterRegistry meterRegistry) {
         this.objectMapper = objectMapper;
         this.eventPublisher = eventPublisher;
+        this.geminiHttpClient = geminiHttpClient;
+        this.httpClient = geminiHttpClient.getHttpClient();
+        this.videoExecutor = videoExecutor;
+        this.llmExecutor = llmExecutor;
+        this.liveConnectionPool = liveConnectionPool;
+        this.videoFrameGovernor = videoFrameGovernor;
+        this.sessionRegistry = sessionRegistry;
+        this.admissionControl = admissionControl;
+        this.meterRegistry = meterRegistry;
     }
     
     public CompletableFuture<String> createTeacherSession() {
@@ -65,96 +95,174 @@ public class SahayakTeacherService {
     }
     
     public CompletableFuture<String> createTeacherSessionWithCustomPrompt(String customPrompt) {
-        String sessionId = UUID.randomUUID().toString();
-        logger.info("Creating dual teacher sessions (text + audio) with custom prompt: {}", sessionId);
-        
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Create TEXT connection
-                GeminiLiveWebSocketClient textClient = new GeminiLiveWebSocketClient(
-                    geminiApiUrl, geminiApiKey, objectMapper, eventPublisher
-                );
-                textClient.connectAsync().get();
-                Thread.sleep(500);
-                
-                LiveConfig textConfig = createTeacherConfigWithModality("text", customPrompt);
-                textClient.sendSetupMessage(textConfig);
-                textSessions.put(sessionId, textClient);
-                logger.info("Text session created for: {}", sessionId);
-                
-                // Create AUDIO connection
-                GeminiLiveWebSocketClient audioClient = new GeminiLiveWebSocketClient(
-                    geminiApiUrl, geminiApiKey, objectMapper, eventPublisher
-                );
-                audioClient.connectAsync().get();
-                Thread.sleep(500);
-                
-                LiveConfig audioConfig = createTeacherConfigWithModality("audio", customPrompt);
-                audioClient.sendSetupMessage(audioConfig);
-                audioSessions.put(sessionId, audioClient);
-                logger.info("Audio session created for: {}", sessionId);
-                
-                logger.info("Dual teacher sessions created successfully: {}", sessionId);
-                return sessionId;
-            } catch (Exception e) {
-                logger.error("Failed to create teacher sessions", e);
-                throw new RuntimeException("Failed to create teacher sessions", e);
-            }
-        });
+        String sessionId = startTeacherSession(customPrompt);
+        return whenReady(sessionId).thenApply(ignored -> sessionId);
     }
     
     public CompletableFuture<String> createPromptCreatorSession() {
+        String sessionId = startPromptCreatorSession();
+        return whenReady(sessionId).thenApply(ignored -> sessionId);
+    }
+    
+    public CompletableFuture<String> createUdaanPromptCreatorSession() {
+        String sessionId = startUdaanPromptCreatorSession();
+        return whenReady(sessionId).thenApply(ignored -> sessionId);
+    }
+    
+    /**
+     * Start a teacher session (text + audio) and return its id right away.
+     * Input sent before the session is ready is queued; see whenReady.
+     * Throws LiveCapacityExceededException if this instance is full.
+     */
+    public String startTeacherSession(String customPrompt) {
+        if ("single".equalsIgnoreCase(teacherConnectionMode)) {
+            LiveConfig config = createTeacherConfigWithModality("audio", customPrompt);
+            config.setOutputAudioTranscription(Map.of());
+            return startMultimodalSession("teacher", config);
+        }
+        return startSession("teacher",
+            createTeacherConfigWithModality("text", customPrompt),
+            createTeacherConfigWithModality("audio", customPrompt));
+    }
+    
+    public String startPromptCreatorSession() {
+        return startSession("prompt-creator", createPromptCreatorConfig(), null);
+    }
+    
+    public String startUdaanPromptCreatorSession() {
+        return startSession("udaan-prompt-creator", createUdaanPromptCreatorConfig(), null);
+    }
+    
+    /**
+     * Future completed once every Live connection of the session has
+     * acknowledged its setup; fails if setup fails or times out, in which case
+     * the session has already been closed
+     */
+    public CompletableFuture<Void> whenReady(String sessionId) {
+        LiveSession session = sessionRegistry.get(sessionId);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Unknown session: " + sessionId));
+        }
+        List<GeminiLiveWebSocketClient> clients = session.getClients();
+        return clients.size() == 1
+            ? clients.get(0).getSetupFuture()
+            : CompletableFuture.allOf(clients.get(0).getSetupFuture(), clients.get(1).getSetupFuture());
+    }
+    
+    /**
+     * Bind a session to the client driving it (e.g. a browser WebSocket). The
+     * session is closed by the registry's reaper if ownerAlive stays false,
+     * even if nobody calls closeTeacherSession. onClosed receives the reason
+     * when the session is closed by this service (e.g. after inactivity)
+     * rather than by its owner.
+     */
+    public void attachOwner(String sessionId, String ownerId, BooleanSupplier ownerAlive,
+                            Consumer<String> onClosed) {
+        if (!sessionRegistry.attachOwner(sessionId, ownerId, ownerAlive, onClosed)) {
+            logger.warn("Cannot attach owner {} to unknown session {}", ownerId, sessionId);
+        }
+    }
+    
+    private String startSession(String sessionType, LiveConfig textConfig, LiveConfig audioConfig) {
+        Runnable releaseCapacity = admissionControl.admit(sessionType, audioConfig != null);
         String sessionId = UUID.randomUUID().toString();
-        logger.info("Creating prompt creator session: {}", sessionId);
+        logger.info("Creating {} session: {}", sessionType, sessionId);
+        long startTime = System.nanoTime();
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Create TEXT connection for prompt creation
-                GeminiLiveWebSocketClient textClient = new GeminiLiveWebSocketClient(
-                    geminiApiUrl, geminiApiKey, objectMapper, eventPublisher
-                );
-                textClient.connectAsync().get();
-                Thread.sleep(500);
-                
-                LiveConfig promptConfig = createPromptCreatorConfig();
-                textClient.sendSetupMessage(promptConfig);
-                textSessions.put(sessionId, textClient);
-                logger.info("Prompt creator session created for: {}", sessionId);
-                
-                return sessionId;
-            } catch (Exception e) {
-                logger.error("Failed to create prompt creator session", e);
-                throw new RuntimeException("Failed to create prompt creator session", e);
+        // Register right away so client input can be queued while connecting;
+        // TEXT and AUDIO connections are opened concurrently
+        GeminiLiveWebSocketClient textClient = null;
+        GeminiLiveWebSocketClient audioClient = null;
+        try {
+            textClient = openLiveSession(sessionId + "/text", textConfig);
+            if (audioConfig != null) {
+                audioClient = openLiveSession(sessionId + "/audio", audioConfig);
             }
-        });
+        } catch (RuntimeException e) {
+            if (textClient != null) {
+                textClient.close();
+            }
+            releaseCapacity.run();
+            throw e;
+        }
+        sessionRegistry.register(sessionId, sessionType, textClient, audioClient, textConfig, audioConfig, releaseCapacity);
+        
+        trackReadiness(sessionType, sessionId, startTime);
+        return sessionId;
     }
     
-    public CompletableFuture<String> createUdaanPromptCreatorSession() {
+    /**
+     * Start a session on one Live connection that serves both text and audio:
+     * audio responses plus their transcription, which reaches the content
+     * handler just like TEXT session output
+     */
+    private String startMultimodalSession(String sessionType, LiveConfig config) {
+        Runnable releaseCapacity = admissionControl.admit(sessionType, true);
         String sessionId = UUID.randomUUID().toString();
-        logger.info("Creating Udaan prompt creator session: {}", sessionId);
+        logger.info("Creating single-connection {} session: {}", sessionType, sessionId);
+        long startTime = System.nanoTime();
         
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Create TEXT connection for Udaan prompt creation
-                GeminiLiveWebSocketClient textClient = new GeminiLiveWebSocketClient(
-                    geminiApiUrl, geminiApiKey, objectMapper, eventPublisher
-                );
-                textClient.connectAsync().get();
-                Thread.sleep(500);
-                
-                LiveConfig udaanConfig = createUdaanPromptCreatorConfig();
-                textClient.sendSetupMessage(udaanConfig);
-                textSessions.put(sessionId, textClient);
-                logger.info("Udaan prompt creator session created for: {}", sessionId);
-                
-                return sessionId;
-            } catch (Exception e) {
-                logger.error("Failed to create Udaan prompt creator session", e);
-                throw new RuntimeException("Failed to create Udaan prompt creator session", e);
+        // The same client as text and audio connection keeps routing unchanged
+        GeminiLiveWebSocketClient client;
+        try {
+            client = openLiveSession(sessionId + "/multimodal", config);
+        } catch (RuntimeException e) {
+            releaseCapacity.run();
+            throw e;
+        }
+        sessionRegistry.register(sessionId, sessionType, client, client, config, config, releaseCapacity);
+        
+        trackReadiness(sessionType, sessionId, startTime);
+        return sessionId;
+    }
+    
+    private void trackReadiness(String sessionType, String sessionId, long startTime) {
+        whenReady(sessionId).whenComplete((ignored, error) -> {
+            recordSessionReady(sessionType, startTime, error);
+            if (error != null) {
+                logger.error("Failed to set up {} session {}", sessionType, sessionId, error);
+                // Don't leak the connection that did come up
+                closeTeacherSession(sessionId);
+            } else {
+                logger.info("{} session ready: {}", sessionType, sessionId);
             }
         });
     }
     
+    /**
+     * Get a Live socket (warm from the pool when available) and send the setup
+     * message as soon as it is connected. The client's setup future completes
+     * once Gemini has acknowledged it.
+     */
+    private GeminiLiveWebSocketClient openLiveSession(String label, LiveConfig config) {
+        if (sessionRegistry.isHibernationEnabled() && config.getSessionResumption() == null) {
+            // Have Gemini send resumption handles so the session can be hibernated
+            config.setSessionResumption(new LiveConfig.SessionResumption());
+        }
+        GeminiLiveWebSocketClient client = liveConnectionPool.acquire(label);
+        CompletableFuture<Void> setupFuture = client.getSetupFuture();
+        
+        client.getConnectionFuture()
+            .thenRun(() -> client.sendSetupMessage(config))
+            .whenComplete((ignored, error) -> {
+                if (error != null) {
+                    setupFuture.completeExceptionally(error);
+                }
+            });
+        setupFuture.orTimeout(liveSetupTimeoutSeconds, TimeUnit.SECONDS);
+        return client;
+    }
+    
+    private void recordSessionReady(String sessionType, long startNanos, Throwable error) {
+        Timer.builder("live.session.ready")
+            .description("Time from session request until every Live connection acknowledged setup")
+            .tag("type", sessionType)
+            .tag("outcome", error == null ? "success" : "failure")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
     private LiveConfig createTeacherConfigWithModality(String modality, String customPrompt) {
         LiveConfig config = new LiveConfig(geminiModel);
         
@@ -273,8 +381,8 @@ public class SahayakTeacherService {
     }
     
     public void sendAudioToTeacher(String sessionId, String base64AudioData) {
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
-        if (audioClient != null && audioClient.isOpen()) {
+        GeminiLiveWebSocketClient audioClient = inputClient(sessionId, false);
+        if (audioClient != null) {
             logger.debug("Sending audio data to AUDIO session: {}", sessionId);
             audioClient.sendAudioData(base64AudioData);
         } else {
@@ -285,10 +393,32 @@ public class SahayakTeacherService {
     
     public void sendVideoToTeacher(String sessionId, String base64VideoData) {
         // Send video to AUDIO session for proper multimodal processing (like Live API console)
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
-        if (audioClient != null && audioClient.isOpen()) {
-            logger.debug("Sending video data to AUDIO session for multimodal processing: {}", sessionId);
-            audioClient.sendVideoData(base64VideoData);
+        GeminiLiveWebSocketClient audioClient = inputClient(sessionId, false);
+        if (audioClient != null) {
+            logger.debug("Submitting video frame for AUDIO session (multimodal processing): {}", sessionId);
+            videoFrameGovernor.submit(sessionId, audioClient, base64VideoData);
+        } else {
+            logger.warn("Audio session not found or closed: {}", sessionId);
+            throw new RuntimeException("Audio session not available: " + sessionId);
+        }
+    }
+    
+    public void sendAudioToTeacher(String sessionId, ByteBuffer pcmAudio) {
+        GeminiLiveWebSocketClient audioClient = inputClient(sessionId, false);
+        if (audioClient != null) {
+            logger.debug("Sending raw audio data to AUDIO session: {}", sessionId);
+            audioClient.sendAudioData(pcmAudio);
+        } else {
+            logger.warn("Audio session not found or closed: {}", sessionId);
+            throw new RuntimeException("Audio session not available: " + sessionId);
+        }
+    }
+    
+    public void sendVideoToTeacher(String sessionId, ByteBuffer jpegFrame) {
+        GeminiLiveWebSocketClient audioClient = inputClient(sessionId, false);
+        if (audioClient != null) {
+            logger.debug("Submitting raw video frame for AUDIO session (multimodal processing): {}", sessionId);
+            videoFrameGovernor.submit(sessionId, audioClient, jpegFrame);
         } else {
             logger.warn("Audio session not found or closed: {}", sessionId);
             throw new RuntimeException("Audio session not available: " + sessionId);
@@ -296,9 +426,9 @@ public class SahayakTeacherService {
     }
     
     public void sendTextToTeacher(String sessionId, String text) {
-        GeminiLiveWebSocketClient textClient = textSessions.get(sessionId);
-        if (textClient != null && textClient.isOpen()) {
-            logger.info("Sending text to TEXT session {}: {}", sessionId, text);
+        GeminiLiveWebSocketClient textClient = inputClient(sessionId, true);
+        if (textClient != null) {
+            logger.info("Sending text to TEXT session {}, length: {}", sessionId, text.length());
             textClient.sendTextMessage(text);
         } else {
             logger.warn("Text session not found or closed: {}", sessionId);
@@ -306,21 +436,213 @@ public class SahayakTeacherService {
         }
     }
     
+    /**
+     * Connection of a session that accepts input, or null; marks the session active
+     */
+    private GeminiLiveWebSocketClient inputClient(String sessionId, boolean text) {
+        LiveSession session = sessionRegistry.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        // Same lock as hibernation, so a session is never hibernated between touch and send
+        synchronized (session) {
+            session.touch();
+            if (session.isHibernated()) {
+                resume(session);
+            }
+            GeminiLiveWebSocketClient client = text ? session.getTextClient() : session.getAudioClient();
+            if (client == null || !client.getState().acceptsInput()) {
+                return null;
+            }
+            return client;
+        }
+    }
+    
+    /**
+     * Reconnect a hibernated session, resuming the Gemini session from its
+     * handle when there is one. The input that triggered this is queued by
+     * the new connection until it is ready. Hibernation released the
+     * session's admission capacity, so it is admitted again first; if this
+     * instance is full, LiveCapacityExceededException is thrown and the
+     * session stays hibernated. Caller holds the session's lock.
+     */
+    private void resume(LiveSession session) {
+        Runnable releaseCapacity = admissionControl.admit(session.getType(), session.hasAudio());
+        long startTime = System.nanoTime();
+        String sessionId = session.getId();
+        String textHandle = session.getTextResumptionHandle();
+        String audioHandle = session.getAudioResumptionHandle();
+        String mode = textHandle != null || audioHandle != null ? "handle" : "fresh";
+        logger.info("Resuming hibernated {} session {} ({})", session.getType(), sessionId, mode);
+        
+        GeminiLiveWebSocketClient oldText = session.getTextClient();
+        GeminiLiveWebSocketClient oldAudio = session.getAudioClient();
+        GeminiLiveWebSocketClient textClient = null;
+        GeminiLiveWebSocketClient audioClient;
+        try {
+            textClient = reconnectText(session, oldText, textHandle);
+            audioClient = reconnectAudio(session, textClient, oldAudio, audioHandle);
+        } catch (RuntimeException e) {
+            if (textClient != null) {
+                textClient.close();
+            }
+            releaseCapacity.run();
+            throw e;
+        }
+        
+        if (!session.resume(textClient, audioClient, releaseCapacity)) {
+            closeClients(textClient, audioClient);
+            releaseCapacity.run();
+            return;
+        }
+        awaitResumed(session, textClient, audioClient, mode, startTime);
+    }
+    
+    /**
+     * Record how the resume went. A resume from a handle that fails (the
+     * handle may have expired) is retried once with a fresh setup; if that
+     * fails too, the session is closed and its owner told.
+     */
+    private void awaitResumed(LiveSession session, GeminiLiveWebSocketClient textClient,
+                              GeminiLiveWebSocketClient audioClient, String mode, long startTime) {
+        readyFuture(textClient, audioClient).whenComplete((ignored, error) -> {
+            Timer.builder("live.session.resume")
+                .description("Time to reconnect a hibernated session until its Live connections are ready")
+                .tag("mode", mode)
+                .tag("outcome", error == null ? "success" : "failure")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            if (error == null) {
+                return;
+            }
+            if ("handle".equals(mode) && retryFresh(session, textClient, audioClient)) {
+                logger.warn("Failed to resume {} session {} from its handle, starting it over: {}",
+                    session.getType(), session.getId(), error.getMessage());
+                return;
+            }
+            if (session.getTextClient() != textClient) {
+                // Reconnected again meanwhile; that attempt reports for itself
+                return;
+            }
+            logger.error("Failed to resume {} session {}", session.getType(), session.getId(), error);
+            sessionRegistry.closeAndNotify(session.getId(), "Could not reconnect to the assistant");
+        });
+    }
+    
+    /**
+     * Replace the failed connections with ones using the original setup and
+     * no handle; false if the session was closed or reconnected meanwhile
+     */
+    private boolean retryFresh(LiveSession session, GeminiLiveWebSocketClient failedText,
+                               GeminiLiveWebSocketClient failedAudio) {
+        GeminiLiveWebSocketClient textClient;
+        GeminiLiveWebSocketClient audioClient;
+        synchronized (session) {
+            if (session.getTextClient() != failedText) {
+                return false;
+            }
+            try {
+                textClient = reconnectText(session, failedText, null);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot reconnect session {}: {}", session.getId(), e.getMessage());
+                return false;
+            }
+            try {
+                audioClient = reconnectAudio(session, textClient, failedAudio, null);
+            } catch (RuntimeException e) {
+                logger.warn("Cannot reconnect session {}: {}", session.getId(), e.getMessage());
+                textClient.close();
+                return false;
+            }
+            if (!session.replaceClients(failedText, textClient, audioClient)) {
+                closeClients(textClient, audioClient);
+                return false;
+            }
+        }
+        awaitResumed(session, textClient, audioClient, "fresh", System.nanoTime());
+        return true;
+    }
+    
+    private GeminiLiveWebSocketClient reconnectText(LiveSession session, GeminiLiveWebSocketClient previous,
+                                                    String handle) {
+        GeminiLiveWebSocketClient client = openLiveSession(
+            session.getId() + (session.isSharedConnection() ? "/multimodal" : "/text"),
+            withResumptionHandle(session.getTextConfig(), handle));
+        client.copyHandlersFrom(previous);
+        return client;
+    }
+    
+    private GeminiLiveWebSocketClient reconnectAudio(LiveSession session, GeminiLiveWebSocketClient textClient,
+                                                     GeminiLiveWebSocketClient previous, String handle) {
+        if (session.isSharedConnection()) {
+            return textClient;
+        }
+        if (previous == null) {
+            return null;
+        }
+        GeminiLiveWebSocketClient client = openLiveSession(session.getId() + "/audio",
+            withResumptionHandle(session.getAudioConfig(), handle));
+        client.copyHandlersFrom(previous);
+        return client;
+    }
+    
+    private static CompletableFuture<Void> readyFuture(GeminiLiveWebSocketClient textClient,
+                                                       GeminiLiveWebSocketClient audioClient) {
+        return audioClient == null || audioClient == textClient
+            ? textClient.getSetupFuture()
+            : CompletableFuture.allOf(textClient.getSetupFuture(), audioClient.getSetupFuture());
+    }
+    
+    private static void closeClients(GeminiLiveWebSocketClient textClient, GeminiLiveWebSocketClient audioClient) {
+        textClient.close();
+        if (audioClient != null && audioClient != textClient) {
+            audioClient.close();
+        }
+    }
+    
+    private static LiveConfig withResumptionHandle(LiveConfig config, String handle) {
+        // Without a handle the session starts over with the same setup
+        config.setSessionResumption(new LiveConfig.SessionResumption(handle));
+        return config;
+    }
+    
+    private GeminiLiveWebSocketClient textClient(String sessionId) {
+        LiveSession session = sessionRegistry.get(sessionId);
+        return session != null ? session.getTextClient() : null;
+    }
+    
+    private GeminiLiveWebSocketClient audioClient(String sessionId) {
+        LiveSession session = sessionRegistry.get(sessionId);
+        return session != null ? session.getAudioClient() : null;
+    }
+    
     public void setAudioHandler(String sessionId, java.util.function.Consumer<String> audioHandler) {
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
+        GeminiLiveWebSocketClient audioClient = audioClient(sessionId);
         if (audioClient != null) {
             audioClient.setAudioDataHandler(audioHandler);
         }
     }
     
+    /**
+     * Like setAudioHandler, but audio is passed as a slice of the parser's
+     * buffer instead of a String (see LiveAudioSink)
+     */
+    public void setAudioSink(String sessionId, LiveAudioSink audioSink) {
+        GeminiLiveWebSocketClient audioClient = audioClient(sessionId);
+        if (audioClient != null) {
+            audioClient.setAudioSink(audioSink);
+        }
+    }
+    
     public void setContentHandler(String sessionId, java.util.function.Consumer<String> contentHandler) {
         // Set content handler for both sessions
-        GeminiLiveWebSocketClient textClient = textSessions.get(sessionId);
+        GeminiLiveWebSocketClient textClient = textClient(sessionId);
         if (textClient != null) {
             textClient.setContentHandler(contentHandler);
         }
         
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
+        GeminiLiveWebSocketClient audioClient = audioClient(sessionId);
         if (audioClient != null) {
             audioClient.setContentHandler(contentHandler);
         }
@@ -328,36 +650,30 @@ public class SahayakTeacherService {
     
     public void setErrorHandler(String sessionId, java.util.function.Consumer<String> errorHandler) {
         // Set error handler for both sessions
-        GeminiLiveWebSocketClient textClient = textSessions.get(sessionId);
+        GeminiLiveWebSocketClient textClient = textClient(sessionId);
         if (textClient != null) {
             textClient.setErrorHandler(errorHandler);
         }
         
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
+        GeminiLiveWebSocketClient audioClient = audioClient(sessionId);
         if (audioClient != null) {
             audioClient.setErrorHandler(errorHandler);
         }
     }
     
     public void closeTeacherSession(String sessionId) {
-        logger.info("Closing dual teacher sessions: {}", sessionId);
-        
-        // Close text session
-        GeminiLiveWebSocketClient textClient = textSessions.remove(sessionId);
-        if (textClient != null) {
-            textClient.close();
-        }
-        
-        // Close audio session
-        GeminiLiveWebSocketClient audioClient = audioSessions.remove(sessionId);
-        if (audioClient != null) {
-            audioClient.close();
-        }
+        logger.info("Closing teacher session connections: {}", sessionId);
+        sessionRegistry.close(sessionId);
     }
     
     public boolean isSessionActive(String sessionId) {
-        GeminiLiveWebSocketClient textClient = textSessions.get(sessionId);
-        GeminiLiveWebSocketClient audioClient = audioSessions.get(sessionId);
+        LiveSession session = sessionRegistry.get(sessionId);
+        if (session != null && session.isHibernated()) {
+            // Reconnects on the next input
+            return true;
+        }
+        GeminiLiveWebSocketClient textClient = textClient(sessionId);
+        GeminiLiveWebSocketClient audioClient = audioClient(sessionId);
         
         boolean textActive = textClient != null && textClient.isOpen();
         boolean audioActive = audioClient != null && audioClient.isOpen();
@@ -368,58 +684,25 @@ public class SahayakTeacherService {
     public Map<String, String> getActiveSessionsStatus() {
         Map<String, String> status = new HashMap<>();
         
-        // Check all session IDs from both maps
-        textSessions.keySet().forEach(sessionId -> {
-            boolean textActive = textSessions.get(sessionId) != null && textSessions.get(sessionId).isOpen();
-            boolean audioActive = audioSessions.get(sessionId) != null && audioSessions.get(sessionId).isOpen();
+        sessionRegistry.getSessions().forEach(session -> {
+            if (session.isHibernated()) {
+                status.put(session.getId(), String.format("TEXT:HIBERNATED, AUDIO:%s",
+                    session.getAudioClient() != null ? "HIBERNATED" : "CLOSED"));
+                return;
+            }
+            boolean textActive = session.getTextClient().isOpen();
+            boolean audioActive = session.getAudioClient() != null && session.getAudioClient().isOpen();
             
             String sessionStatus = String.format("TEXT:%s, AUDIO:%s", 
                 textActive ? "ACTIVE" : "CLOSED", 
                 audioActive ? "ACTIVE" : "CLOSED");
-            status.put(sessionId, sessionStatus);
+            status.put(session.getId(), sessionStatus);
         });
         
         return status;
     }
     
     // Video Generation Methods
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
-    
-    // Create a more permissive HTTP client for development
-    private HttpClient createPermissiveHttpClient() {
-        try {
-            // Create a trust manager that accepts all certificates (for development only)
-            javax.net.ssl.TrustManager[] trustAllCerts = new javax.net.ssl.TrustManager[] {
-                new javax.net.ssl.X509TrustManager() {
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                        return null;
-                    }
-                    public void checkClientTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                    }
-                    public void checkServerTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                    }
-                }
-            };
-            
-            javax.net.ssl.SSLContext sslContext = javax.net.ssl.SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            
-            return HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .sslContext(sslContext)
-                .build();
-        } catch (Exception e) {
-            logger.warn("Failed to create permissive HTTP client, using default: {}", e.getMessage());
-            return HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(30))
-                .followRedirects(HttpClient.Redirect.ALWAYS)
-                .build();
-        }
-    }
-    
     public CompletableFuture<String> generateVideoPrompt(Map<String, Object> request) {
         return CompletableFuture.supplyAsync(() -> {
             try {
@@ -511,15 +794,13 @@ public class SahayakTeacherService {
                 logger.info("========================================");
                 
                 // Make HTTP request to Gemini API
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent"))
+                HttpRequest httpRequest = geminiHttpClient.newRequest("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent")
                     .header("x-goog-api-key", geminiApiKey)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(requestJson))
                     .build();
                 
-                HttpClient client = createPermissiveHttpClient();
-                HttpResponse<String> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
                 
                 if (response.statusCode() != 200) {
                     throw new RuntimeException("Failed to generate video prompt. Status: " + response.statusCode() + ", Body: " + response.body());
@@ -550,7 +831,7 @@ public class SahayakTeacherService {
                 logger.error("Error generating video prompt", e);
                 throw new RuntimeException("Failed to generate video prompt", e);
             }
-        });
+        }, videoExecutor);
     }
     
     public CompletableFuture<String> generateVideo(String prompt) {
@@ -572,15 +853,13 @@ public class SahayakTeacherService {
                 logger.info("================================");
                 
                 // Make HTTP request to Veo API
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://generativelanguage.googleapis.com/v1beta/models/veo-3.0-generate-preview:predictLongRunning"))
+                HttpRequest httpRequest = geminiHttpClient.newRequest("https://generativelanguage.googleapis.com/v1beta/models/veo-3.0-generate-preview:predictLongRunning")
                     .header("x-goog-api-key", geminiApiKey)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(requestJson))
                     .build();
                 
-                HttpClient client = createPermissiveHttpClient();
-                HttpResponse<String> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
                 
                 if (response.statusCode() != 200) {
                     throw new RuntimeException("Failed to start video generation. Status: " + response.statusCode() + ", Body: " + response.body());
@@ -601,21 +880,19 @@ public class SahayakTeacherService {
                 logger.error("Error starting video generation", e);
                 throw new RuntimeException("Failed to start video generation", e);
             }
-        });
+        }, videoExecutor);
     }
     
     public CompletableFuture<Map<String, Object>> getVideoStatus(String operationName) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 // Make HTTP request to check operation status
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://generativelanguage.googleapis.com/v1beta/" + operationName))
+                HttpRequest httpRequest = geminiHttpClient.newRequest("https://generativelanguage.googleapis.com/v1beta/" + operationName)
                     .header("x-goog-api-key", geminiApiKey)
                     .GET()
                     .build();
                 
-                HttpClient client = createPermissiveHttpClient();
-                HttpResponse<String> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
                 
                 if (response.statusCode() != 200) {
                     throw new RuntimeException("Failed to check video status. Status: " + response.statusCode() + ", Body: " + response.body());
@@ -658,21 +935,19 @@ public class SahayakTeacherService {
                 logger.error("Error checking video status", e);
                 throw new RuntimeException("Failed to check video status", e);
             }
-        });
+        }, videoExecutor);
     }
     
     public CompletableFuture<byte[]> downloadVideo(String videoUri) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 // Make HTTP request to download video
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(videoUri))
+                HttpRequest httpRequest = geminiHttpClient.newRequest(videoUri)
                     .header("x-goog-api-key", geminiApiKey)
                     .GET()
                     .build();
                 
-                HttpClient client = createPermissiveHttpClient();
-                HttpResponse<byte[]> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+                HttpResponse<byte[]> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
                 
                 if (response.statusCode() != 200) {
                     throw new RuntimeException("Failed to download video. Status: " + response.statusCode());
@@ -686,7 +961,7 @@ public class SahayakTeacherService {
                 logger.error("Error downloading video", e);
                 throw new RuntimeException("Failed to download video", e);
             }
-        });
+        }, videoExecutor);
     }
     
     public CompletableFuture<Map<String, Object>> generateFuturePlan(String text) {
@@ -701,14 +976,12 @@ public class SahayakTeacherService {
                 String requestJson = objectMapper.writeValueAsString(requestBody);
                 
                 // Make HTTP request to the external future planner API
-                HttpRequest httpRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://future-planner-api-1026861423924.us-central1.run.app/generate-plan-from-text"))
+                HttpRequest httpRequest = geminiHttpClient.newRequest("https://future-planner-api-1026861423924.us-central1.run.app/generate-plan-from-text")
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(requestJson))
                     .build();
                 
-                HttpClient client = createPermissiveHttpClient();
-                HttpResponse<String> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
                 
                 if (response.statusCode() != 200) {
                     throw new RuntimeException("Failed to generate future plan. Status: " + response.statusCode() + ", Body: " + response.body());
@@ -725,6 +998,6 @@ public class SahayakTeacherService {
                 logger.error("Error generating future plan", e);
                 throw new RuntimeException("Failed to generate future plan", e);
             }
-        });
+        }, llmExecutor);
     }
 }
@@ -0,0 +1,43 @@
+package com.sahayak.service;
+
+/**
+ * Which instance owns which Live session, so REST calls for a session can be
+ * served by any replica (see SessionRoutingFilter).
+ *
+ * Implementations must be shared by all replicas to route across them; the
+ * in-memory one only knows its own sessions and the file one works for
+ * instances sharing a directory (e.g. several local instances). A production
+ * deployment plugs in a shared store here.
+ */
+public interface SessionDirectory {
+
+    /**
+     * Base URL other instances use to reach this one
+     */
+    String getInstanceUrl();
+
+    /**
+     * Record this instance as the owner of a session
+     */
+    void register(String sessionId);
+
+    /**
+     * Forget a session if this instance still owns it
+     */
+    void unregister(String sessionId);
+
+    /**
+     * Base URL of the owning instance, or null if the session is unknown
+     */
+    String findOwner(String sessionId);
+
+    /**
+     * Forget a session whose owner is gone (e.g. crashed), if the entry still
+     * names that owner
+     */
+    void removeStale(String sessionId, String ownerUrl);
+
+    default boolean isLocal(String ownerUrl) {
+        return getInstanceUrl().equals(ownerUrl);
+    }
+}
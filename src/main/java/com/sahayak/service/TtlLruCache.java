@@ -0,0 +1,173 @@
+package com.sahayak.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory LRU cache with a TTL and single-flight loading.
+ *
+ * Concurrent misses for the same key share one load: the first caller runs
+ * the loader and the others get a future for its result (or its failure),
+ * so nobody waits on a thread for a load to finish. Only values accepted by
+ * the cacheable predicate are stored. A null key bypasses the cache, which
+ * is how callers disable it.
+ *
+ * Meters: {prefix}.requests tagged result=hit|miss|shared,
+ * {prefix}.evictions and {prefix}.size.
+ */
+class TtlLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Predicate<V> cacheable;
+    // Called for every entry dropped by size or TTL, e.g. to delete a persisted copy
+    private final Consumer<K> removalListener;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter sharedCounter;
+    private final Counter evictionCounter;
+
+    // Access-ordered map gives us LRU eviction; both maps guarded by "this"
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > maxEntries) {
+                evicted(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+
+    TtlLruCache(String metricPrefix, String description, int maxEntries, long ttlMinutes,
+                Predicate<V> cacheable, Consumer<K> removalListener, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.cacheable = cacheable;
+        this.removalListener = removalListener;
+        this.hitCounter = requestCounter(meterRegistry, metricPrefix, description, "hit");
+        this.missCounter = requestCounter(meterRegistry, metricPrefix, description, "miss");
+        // Misses that joined a load already in progress
+        this.sharedCounter = requestCounter(meterRegistry, metricPrefix, description, "shared");
+        this.evictionCounter = Counter.builder(metricPrefix + ".evictions")
+            .description(description + " evicted by size or TTL")
+            .register(meterRegistry);
+        meterRegistry.gauge(metricPrefix + ".size", this, TtlLruCache::size);
+    }
+
+    /**
+     * Get the cached value, or start loading it once for all concurrent
+     * callers, without blocking. The loader is called on the calling thread
+     * and returns a future for the value (e.g. one running on an executor);
+     * if it throws, so does this method, and callers sharing the load see the
+     * failure. Cancelling a returned future does not cancel a shared load,
+     * except with a null key, where the loader's own future is returned.
+     */
+    CompletableFuture<V> getAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        if (key == null) {
+            return loader.get();
+        }
+
+        CompletableFuture<V> pending;
+        CompletableFuture<V> created = null;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && isExpired(entry.createdAt)) {
+                entries.remove(key);
+                evicted(key);
+                entry = null;
+            }
+            if (entry != null) {
+                hitCounter.increment();
+                return CompletableFuture.completedFuture(entry.value);
+            }
+            pending = loading.get(key);
+            if (pending == null) {
+                missCounter.increment();
+                created = new CompletableFuture<>();
+                loading.put(key, created);
+            } else {
+                sharedCounter.increment();
+            }
+        }
+        if (created == null) {
+            return pending.copy();
+        }
+
+        CompletableFuture<V> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            finishLoad(key, created, null, e);
+            throw e;
+        }
+        CompletableFuture<V> future = created;
+        load.whenComplete((value, error) -> finishLoad(key, future, value, error));
+        return created.copy();
+    }
+
+    /**
+     * Add an entry created at the given time, e.g. one restored from disk
+     */
+    synchronized void put(K key, V value, long createdAtMillis) {
+        entries.put(key, new Entry<>(value, createdAtMillis));
+    }
+
+    boolean isExpired(long createdAtMillis) {
+        return ttlMillis > 0 && System.currentTimeMillis() - createdAtMillis > ttlMillis;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void finishLoad(K key, CompletableFuture<V> future, V value, Throwable error) {
+        synchronized (this) {
+            if (error == null && value != null && cacheable.test(value)) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+            }
+            loading.remove(key);
+        }
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(value);
+        }
+    }
+
+    // Caller holds the lock
+    private void evicted(K key) {
+        evictionCounter.increment();
+        if (removalListener != null) {
+            removalListener.accept(key);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String metricPrefix, String description,
+                                          String result) {
+        return Counter.builder(metricPrefix + ".requests")
+            .tag("result", result)
+            .description(description + " lookups")
+            .register(meterRegistry);
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long createdAt;
+
+        Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
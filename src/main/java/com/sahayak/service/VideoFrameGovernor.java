@@ -0,0 +1,363 @@
+package com.sahayak.service;
+
+import com.sahayak.config.ExecutorConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate limits screen-share frames per session before they reach the Gemini
+ * Live socket they share with audio.
+ *
+ * At most live.video.max-fps frames are sent per session. Frames arriving in
+ * between replace the one waiting (latest frame wins), and a frame is held
+ * back while the socket still has unsent data, so video never queues up in
+ * front of audio. Frames wider than live.video.downscale-max-width are
+ * optionally scaled down and re-encoded before sending; that work runs on the
+ * bounded video-frame executor, one frame per session at a time, so the
+ * scheduler threads shared by all sessions only ever do cheap hand-offs.
+ */
+@Component
+public class VideoFrameGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoFrameGovernor.class);
+
+    // How long to wait before re-checking a socket that still has unsent data
+    private static final long BUSY_RETRY_MILLIS = 50;
+
+    @Value("${live.video.max-fps:2}")
+    private double maxFps;
+
+    @Value("${live.video.downscale-max-width:0}")
+    private int downscaleMaxWidth;
+
+    @Value("${live.video.jpeg-quality:0.7}")
+    private float jpegQuality;
+
+    private final Map<String, FrameSlot> slots = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Executor frameExecutor;
+
+    private final Counter receivedFrames;
+    private final Counter sentFrames;
+    private final Counter droppedFrames;
+    private final Counter downscaledFrames;
+
+    public VideoFrameGovernor(MeterRegistry meterRegistry,
+                              @Value("${live.video.scheduler-threads:2}") int schedulerThreads,
+                              @Qualifier(ExecutorConfig.VIDEO_FRAME_EXECUTOR) Executor frameExecutor) {
+        this.frameExecutor = frameExecutor;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(schedulerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "video-governor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.receivedFrames = frameCounter(meterRegistry, "received");
+        this.sentFrames = frameCounter(meterRegistry, "sent");
+        this.droppedFrames = frameCounter(meterRegistry, "dropped");
+        // Separate meter: a downscaled frame is also counted as sent
+        this.downscaledFrames = Counter.builder("live.video.frames.downscaled")
+            .description("Screen-share frames scaled down and re-encoded before sending")
+            .register(meterRegistry);
+    }
+
+    public void submit(String sessionId, GeminiLiveWebSocketClient client, String base64Jpeg) {
+        receivedFrames.increment();
+        slotFor(sessionId, client).offer(base64Jpeg, null);
+    }
+
+    /**
+     * Submit a raw JPEG; the buffer is only copied if the frame has to wait
+     */
+    public void submit(String sessionId, GeminiLiveWebSocketClient client, ByteBuffer jpeg) {
+        receivedFrames.increment();
+        slotFor(sessionId, client).offer(null, jpeg);
+    }
+
+    /**
+     * Forget a session; a frame still waiting is discarded
+     */
+    public void release(String sessionId) {
+        FrameSlot slot = slots.remove(sessionId);
+        if (slot != null) {
+            slot.close();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private FrameSlot slotFor(String sessionId, GeminiLiveWebSocketClient client) {
+        return slots.compute(sessionId, (id, slot) -> {
+            if (slot != null && slot.client == client) {
+                return slot;
+            }
+            // A new client for the same session (e.g. after a reconnect) gets a fresh slot
+            if (slot != null) {
+                slot.close();
+            }
+            return new FrameSlot(client);
+        });
+    }
+
+    private long minIntervalNanos() {
+        return maxFps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxFps) : 0;
+    }
+
+    private void send(GeminiLiveWebSocketClient client, Frame frame) {
+        try {
+            if (frame.bytes != null) {
+                client.sendVideoData(ByteBuffer.wrap(frame.bytes));
+            } else {
+                client.sendVideoData(frame.base64);
+            }
+            sentFrames.increment();
+        } catch (Exception e) {
+            logger.warn("Failed to send video frame: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Send a frame scaled down to the configured width, or as it is if it is
+     * already small enough or cannot be decoded
+     */
+    private void sendDownscaled(GeminiLiveWebSocketClient client, Frame frame) {
+        try {
+            byte[] jpeg = frame.bytes != null ? frame.bytes : Base64.getDecoder().decode(frame.base64);
+            byte[] scaled = downscale(jpeg);
+            if (scaled != null) {
+                downscaledFrames.increment();
+                client.sendVideoData(ByteBuffer.wrap(scaled));
+                sentFrames.increment();
+                return;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to downscale video frame, sending it unchanged: {}", e.getMessage());
+        }
+        send(client, frame);
+    }
+
+    /**
+     * Scale a JPEG down to the configured width and re-encode it, or return
+     * null if it is already small enough or cannot be decoded. Streams are
+     * memory-cached so ImageIO never touches its disk cache.
+     */
+    private byte[] downscale(byte[] jpeg) throws IOException {
+        BufferedImage source = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(jpeg)));
+        if (source == null || source.getWidth() <= downscaleMaxWidth) {
+            return null;
+        }
+
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * downscaleMaxWidth / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(downscaleMaxWidth, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, downscaleMaxWidth, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(jpeg.length / 2);
+        try (ImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static Counter frameCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("live.video.frames")
+            .tag("result", result)
+            .description("Screen-share frames handled by the video frame governor")
+            .register(meterRegistry);
+    }
+
+    private static class Frame {
+        private final String base64;
+        private final byte[] bytes;
+
+        Frame(String base64, byte[] bytes) {
+            this.base64 = base64;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Send state of one session; all fields guarded by "this"
+     */
+    private class FrameSlot {
+        private final GeminiLiveWebSocketClient client;
+        private Frame pending;
+        private long lastSentNanos;
+        private boolean flushScheduled;
+        // A frame is being downscaled on the frame executor
+        private boolean encoding;
+        private boolean closed;
+
+        FrameSlot(GeminiLiveWebSocketClient client) {
+            this.client = client;
+            this.lastSentNanos = System.nanoTime() - minIntervalNanos();
+        }
+
+        void offer(String base64, ByteBuffer bytes) {
+            synchronized (this) {
+                if (closed) {
+                    droppedFrames.increment();
+                    return;
+                }
+                if (pending != null) {
+                    // Latest frame wins
+                    droppedFrames.increment();
+                    pending = null;
+                }
+                if (flushScheduled) {
+                    pending = frameOf(base64, bytes);
+                    return;
+                }
+
+                long waitNanos = lastSentNanos + minIntervalNanos() - System.nanoTime();
+                boolean busy = client.hasBufferedData();
+                if (waitNanos <= 0 && !busy && downscaleMaxWidth <= 0) {
+                    // Fast path: send on the caller's thread without copying
+                    lastSentNanos = System.nanoTime();
+                    if (bytes != null) {
+                        sendDirect(bytes);
+                    } else {
+                        send(client, new Frame(base64, null));
+                    }
+                    return;
+                }
+
+                pending = frameOf(base64, bytes);
+                flushScheduled = true;
+                long delayNanos = Math.max(waitNanos, busy ? TimeUnit.MILLISECONDS.toNanos(BUSY_RETRY_MILLIS) : 0);
+                scheduleFlush(delayNanos);
+            }
+        }
+
+        private void sendDirect(ByteBuffer bytes) {
+            try {
+                client.sendVideoData(bytes);
+                sentFrames.increment();
+            } catch (Exception e) {
+                logger.warn("Failed to send video frame: {}", e.getMessage());
+            }
+        }
+
+        private void flush() {
+            Frame frame;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (encoding || client.hasBufferedData()) {
+                    // The previous frame (or audio) is still going out; check again shortly
+                    scheduleFlush(TimeUnit.MILLISECONDS.toNanos(BUSY_RETRY_MILLIS));
+                    return;
+                }
+                frame = pending;
+                pending = null;
+                flushScheduled = false;
+                lastSentNanos = System.nanoTime();
+                if (frame != null && downscaleMaxWidth > 0) {
+                    encoding = true;
+                }
+            }
+            if (frame == null) {
+                return;
+            }
+            if (downscaleMaxWidth > 0) {
+                submitDownscale(frame);
+            } else {
+                send(client, frame);
+            }
+        }
+
+        private void submitDownscale(Frame frame) {
+            try {
+                frameExecutor.execute(() -> {
+                    try {
+                        sendDownscaled(client, frame);
+                    } finally {
+                        synchronized (this) {
+                            encoding = false;
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Frame executor saturated: skip this frame, a newer one follows
+                droppedFrames.increment();
+                synchronized (this) {
+                    encoding = false;
+                }
+            }
+        }
+
+        // Caller holds the lock
+        private void scheduleFlush(long delayNanos) {
+            try {
+                scheduler.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                // Shutting down
+                flushScheduled = false;
+                pending = null;
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (pending != null) {
+                droppedFrames.increment();
+                pending = null;
+            }
+        }
+
+        private Frame frameOf(String base64, ByteBuffer bytes) {
+            if (bytes == null) {
+                return new Frame(base64, null);
+            }
+            byte[] array = new byte[bytes.remaining()];
+            bytes.duplicate().get(array);
+            return new Frame(null, array);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package com.sahayak.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.config.ExecutorConfig;
+import com.sahayak.model.ClassEvaluationEvent;
 import com.sahayak.model.WorksheetEvaluationRequest;
 import com.sahayak.model.WorksheetEvaluationResponse;
 import com.sahayak.model.QuestionPaperEvaluationRequest;
 import com.sahayak.model.QuestionPaperAnalysisResult;
+import com.sahayak.service.gemini.GeminiHttpClient;
+import com.sahayak.service.gemini.GeminiResponseParser;
+import com.sahayak.service.gemini.GeminiSchemaGenerator;
+import com.sahayak.service.gemini.GeminiStreamingRequestBody;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -16,6 +23,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class WorksheetEvaluationService {
@@ -28,8 +43,26 @@ public class WorksheetEvaluationService {
     @Value("${gemini.api.model.v1:gemini-2.5-flash}")
     private String geminiFlashModel;
     
+    // "gemini" generates the evaluation prompt with Flash (cached), "local" uses a built-in template
+    @Value("${worksheet.prompt.mode:gemini}")
+    private String promptMode;
+    
+    // How long the Pro upload waits for the prompt after writing the document before it is aborted
+    @Value("${worksheet.prompt.timeout-seconds:60}")
+    private long promptTimeoutSeconds;
+    
+    // Maximum answer sheets evaluated in parallel by a single class evaluation
+    @Value("${worksheet.batch.max-concurrency:4}")
+    private int batchConcurrency;
+    
     private final ObjectMapper objectMapper;
     private final RestTemplate restTemplate;
+    private final GeminiResponseParser responseParser;
+    private final GeminiSchemaGenerator schemaGenerator;
+    private final QuestionPaperAnalysisCache analysisCache;
+    private final EvaluationPromptCache promptCache;
+    private final MeterRegistry meterRegistry;
+    private final Executor evaluationExecutor;
     
     // Supported file types
     private static final Set<String> SUPPORTED_MIME_TYPES = Set.of(
@@ -42,114 +75,125 @@ public class WorksheetEvaluationService {
     // Maximum file size (10MB)
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
     
-    public WorksheetEvaluationService(ObjectMapper objectMapper) {
+    public WorksheetEvaluationService(ObjectMapper objectMapper, GeminiHttpClient geminiHttpClient,
+                                      GeminiResponseParser responseParser, GeminiSchemaGenerator schemaGenerator,
+                                      QuestionPaperAnalysisCache analysisCache, EvaluationPromptCache promptCache,
+                                      MeterRegistry meterRegistry,
+                                      @Qualifier(ExecutorConfig.LLM_EVALUATION_EXECUTOR) Executor evaluationExecutor) {
         this.objectMapper = objectMapper;
-        this.restTemplate = createPermissiveRestTemplate();
+        this.restTemplate = geminiHttpClient.getRestTemplate();
+        this.responseParser = responseParser;
+        this.schemaGenerator = schemaGenerator;
+        this.analysisCache = analysisCache;
+        this.promptCache = promptCache;
+        this.meterRegistry = meterRegistry;
+        this.evaluationExecutor = evaluationExecutor;
     }
     
     /**
-     * Create a RestTemplate with permissive SSL configuration for development
+     * Main method to evaluate a worksheet.
+     *
+     * Runs as a staged pipeline: the file's metadata is validated first, so an
+     * invalid upload never costs a Gemini call. Prompt generation needs no file
+     * data, so it then overlaps with uploading the worksheet to Gemini Pro,
+     * which only waits for the prompt after the document part, and for at most
+     * worksheet.prompt.timeout-seconds. Per-stage durations (which may overlap)
+     * are reported in the response's stageTimings.
      */
-    private RestTemplate createPermissiveRestTemplate() {
+    public CompletableFuture<WorksheetEvaluationResponse> evaluateWorksheet(
+            MultipartFile worksheetFile, 
+            WorksheetEvaluationRequest request) {
+        
+        long startTime = System.currentTimeMillis();
+        Map<String, Long> stageTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+        
+        logger.info("Starting worksheet evaluation for student: {}, subject: {}", 
+                   request.getStudentName(), request.getSubject());
+        
+        // Stage: validate file (metadata only; it is streamed to Gemini later, not loaded here)
+        long validationStart = System.currentTimeMillis();
         try {
-            // Create a trust manager that accepts all certificates (for development only)
-            javax.net.ssl.TrustManager[] trustAllCerts = new javax.net.ssl.TrustManager[] {
-                new javax.net.ssl.X509TrustManager() {
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                        return null;
-                    }
-                    public void checkClientTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                    }
-                    public void checkServerTrusted(java.security.cert.X509Certificate[] certs, String authType) {
-                    }
-                }
-            };
-            
-            javax.net.ssl.SSLContext sslContext = javax.net.ssl.SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            
-            // Create SSL socket factory
-            javax.net.ssl.SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
-            
-            // Create hostname verifier that accepts all hostnames
-            javax.net.ssl.HostnameVerifier hostnameVerifier = (hostname, session) -> true;
+            validateFile(worksheetFile);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid worksheet for student: {}: {}", request.getStudentName(), e.getMessage());
+            return CompletableFuture.completedFuture(
+                new WorksheetEvaluationResponse("error", "Failed to evaluate worksheet: " + e.getMessage()));
+        }
+        stageTimings.put("validation", System.currentTimeMillis() - validationStart);
+        
+        // Stage: evaluation prompt (cached, local template or Gemini Flash).
+        // A Flash call is submitted before the evaluation task, so it is always ahead of it in the executor queue.
+        long promptStart = System.currentTimeMillis();
+        CompletableFuture<String> promptStage = generateEvaluationPrompt(request)
+            .thenApply(prompt -> withStudentContext(prompt, request))
+            .whenComplete((prompt, error) ->
+                stageTimings.put("promptGeneration", System.currentTimeMillis() - promptStart))
+            .orTimeout(promptTimeoutSeconds, TimeUnit.SECONDS);
+        
+        // A rejection here still lets a started Flash call complete and fill the prompt cache for later requests
+        return CompletableFuture.supplyAsync(
+            () -> evaluateWithPrompt(worksheetFile, request, promptStage, stageTimings, startTime),
+            evaluationExecutor);
+    }
+    
+    /**
+     * Evaluation task of evaluateWorksheet; runs on the evaluation executor
+     */
+    private WorksheetEvaluationResponse evaluateWithPrompt(MultipartFile worksheetFile, WorksheetEvaluationRequest request,
+                                                           CompletableFuture<String> promptStage,
+                                                           Map<String, Long> stageTimings, long startTime) {
+        try {
+            if (promptStage.isCompletedExceptionally()) {
+                // The prompt already failed; don't start an upload that would be aborted
+                promptStage.join();
+            }
             
-            // Configure HTTP client factory with SSL settings
-            org.springframework.http.client.SimpleClientHttpRequestFactory factory = 
-                new org.springframework.http.client.SimpleClientHttpRequestFactory();
+            // Stage: evaluate worksheet using Gemini 2.5 Pro, uploading while the prompt is produced
+            long stageStart = System.currentTimeMillis();
+            WorksheetEvaluationResponse.EvaluationResult evaluationResult = 
+                evaluateWorksheetWithGemini(worksheetFile, promptStage, worksheetFile.getContentType());
+            long evaluationMillis = System.currentTimeMillis() - stageStart;
+            stageTimings.put("evaluation", evaluationMillis);
+            recordStage("evaluation", "gemini", evaluationMillis);
             
-            // For HTTPS connections, we need to use HttpsURLConnection
-            // Increased timeouts for document processing
-            factory.setConnectTimeout(60000);  // 60 seconds connect timeout
-            factory.setReadTimeout(300000);    // 5 minutes read timeout for document analysis
+            // Create response
+            WorksheetEvaluationResponse response = new WorksheetEvaluationResponse(
+                request.getStudentName(),
+                request.getStudentId(),
+                request.getWorksheetTitle(),
+                request.getSubject(),
+                evaluationResult
+            );
             
-            RestTemplate restTemplate = new RestTemplate(factory);
+            long endTime = System.currentTimeMillis();
+            response.setProcessingTime(String.format("%.1fs", (endTime - startTime) / 1000.0));
+            response.setStageTimings(stageTimings);
             
-            // Set default SSL context for HttpsURLConnection
-            javax.net.ssl.HttpsURLConnection.setDefaultSSLSocketFactory(sslSocketFactory);
-            javax.net.ssl.HttpsURLConnection.setDefaultHostnameVerifier(hostnameVerifier);
+            logger.info("Worksheet evaluation completed successfully for student: {} , response : {}",
+                       request.getStudentName(), response);
             
-            logger.info("Created RestTemplate with permissive SSL configuration for development");
-            return restTemplate;
+            return response;
             
         } catch (Exception e) {
-            logger.warn("Failed to create permissive RestTemplate, using default: {}", e.getMessage());
-            return new RestTemplate();
-        }
-    }
-    
-    /**
-     * Main method to evaluate a worksheet
-     */
-    public CompletableFuture<WorksheetEvaluationResponse> evaluateWorksheet(
-            MultipartFile worksheetFile, 
-            WorksheetEvaluationRequest request) {
-        
-        long startTime = System.currentTimeMillis();
-        
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("Starting worksheet evaluation for student: {}, subject: {}", 
-                           request.getStudentName(), request.getSubject());
-                
-                // Step 1: Validate and process file
-                String base64Document = validateAndProcessFile(worksheetFile);
-                
-                // Step 2: Generate evaluation prompt using Gemini Flash
-                String evaluationPrompt = generateEvaluationPrompt(request);
-                
-                // Step 3: Evaluate worksheet using Gemini 2.5 Pro
-                WorksheetEvaluationResponse.EvaluationResult evaluationResult = 
-                    evaluateWorksheetWithGemini(base64Document, evaluationPrompt, worksheetFile.getContentType());
-                
-                // Step 4: Create response
-                WorksheetEvaluationResponse response = new WorksheetEvaluationResponse(
-                    request.getStudentName(),
-                    request.getStudentId(),
-                    request.getWorksheetTitle(),
-                    request.getSubject(),
-                    evaluationResult
-                );
-                
-                long endTime = System.currentTimeMillis();
-                response.setProcessingTime(String.format("%.1fs", (endTime - startTime) / 1000.0));
-                
-                logger.info("Worksheet evaluation completed successfully for student: {} , response : {}",
-                           request.getStudentName(), response);
-                
-                return response;
-                
-            } catch (Exception e) {
-                logger.error("Error evaluating worksheet for student: {}", request.getStudentName(), e);
-                return new WorksheetEvaluationResponse("error", "Failed to evaluate worksheet: " + e.getMessage());
+            // A failed prompt aborts the upload; report the prompt failure, not the aborted request
+            if (promptStage.isCompletedExceptionally()) {
+                Throwable promptError = unwrap(promptStage.handle((prompt, error) -> error).join());
+                logger.error("Error generating evaluation prompt for student: {}", request.getStudentName(), promptError);
+                String reason = promptError instanceof TimeoutException
+                    ? "timed out after " + promptTimeoutSeconds + "s"
+                    : promptError.getMessage();
+                return new WorksheetEvaluationResponse("error", "Failed to generate evaluation prompt: " + reason);
             }
-        });
+            logger.error("Error evaluating worksheet for student: {}", request.getStudentName(), e);
+            return new WorksheetEvaluationResponse("error", "Failed to evaluate worksheet: " + e.getMessage());
+        }
     }
     
     /**
-     * Step 1: Validate file and convert to base64
+     * Step 1: Validate file
+     * The file is not read here; its content is base64 encoded while streaming the Gemini request.
      */
-    private String validateAndProcessFile(MultipartFile file) throws Exception {
+    private void validateFile(MultipartFile file) {
         // Validate file is not empty
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Uploaded file is empty");
@@ -168,41 +212,115 @@ public class WorksheetEvaluationService {
                 "Unsupported file type. Supported formats: PDF, JPG, JPEG, PNG");
         }
         
-        // Convert to base64
-        byte[] fileBytes = file.getBytes();
-        String base64Document = Base64.getEncoder().encodeToString(fileBytes);
-        
-        logger.info("File processed successfully. Type: {}, Size: {} bytes", contentType, fileBytes.length);
-        
-        return base64Document;
+        logger.info("File validated successfully. Type: {}, Size: {} bytes", contentType, file.getSize());
     }
     
     /**
-     * Step 2: Generate evaluation prompt using Gemini Flash
+     * Step 2: Get the evaluation prompt for the worksheet.
+     * The prompt depends only on the worksheet metadata, so Flash output is
+     * cached per subject/title/criteria; "local" mode skips Flash entirely.
+     * Never blocks: a Flash call runs on the evaluation executor, and callers
+     * sharing an in-flight generation get a future for its result.
      */
-    private String generateEvaluationPrompt(WorksheetEvaluationRequest request) throws Exception {
+    private CompletableFuture<String> generateEvaluationPrompt(WorksheetEvaluationRequest request) {
+        long startTime = System.currentTimeMillis();
+        
+        if ("local".equalsIgnoreCase(promptMode)) {
+            String prompt = buildLocalEvaluationPrompt(request);
+            recordStage("promptGeneration", "local", System.currentTimeMillis() - startTime);
+            return CompletableFuture.completedFuture(prompt);
+        }
+        
+        // Concurrent evaluations of the same worksheet share one Flash call
+        AtomicBoolean generated = new AtomicBoolean();
+        CompletableFuture<String> prompt = promptCache.get(promptCache.keyFor(request), () -> {
+            generated.set(true);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return generateEvaluationPromptWithFlash(request);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, evaluationExecutor);
+        });
+        if (!generated.get()) {
+            logger.info("Using cached evaluation prompt for subject: {}, worksheet: {}",
+                       request.getSubject(), request.getWorksheetTitle());
+        }
+        String source = generated.get() ? "gemini" : "cache";
+        prompt.whenComplete((value, error) -> {
+            if (error == null) {
+                recordStage("promptGeneration", source, System.currentTimeMillis() - startTime);
+            }
+        });
+        return prompt;
+    }
+    
+    private String generateEvaluationPromptWithFlash(WorksheetEvaluationRequest request) throws Exception {
         logger.info("Generating evaluation prompt using Gemini Flash");
         
         String promptGenerationRequest = buildPromptGenerationRequest(request);
         
         // Call Gemini Flash to generate the evaluation prompt
-        Map<String, Object> requestBody = createGeminiRequestBody(promptGenerationRequest, null, null);
+        GeminiStreamingRequestBody requestBody = new GeminiStreamingRequestBody(objectMapper, promptGenerationRequest);
         String geminiUrl = "https://generativelanguage.googleapis.com/v1beta/models/" + geminiFlashModel + ":generateContent";
         String urlWithApiKey = geminiUrl + "?key=" + geminiApiKey;
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        ResponseEntity<Map> response = restTemplate.exchange(urlWithApiKey, HttpMethod.POST, entity, Map.class);
-        
-        String generatedPrompt = extractTextFromGeminiResponse(response.getBody());
-        
+        String generatedPrompt = postToGemini(urlWithApiKey, requestBody);
         logger.info("Evaluation prompt generated successfully");
         return generatedPrompt;
     }
     
+    /**
+     * Prefix the (student independent) evaluation prompt with the student's details
+     */
+    private String withStudentContext(String evaluationPrompt, WorksheetEvaluationRequest request) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("Student: ").append(request.getStudentName());
+        if (request.getStudentId() != null) {
+            promptBuilder.append(" (ID: ").append(request.getStudentId()).append(")");
+        }
+        promptBuilder.append("\n\n").append(evaluationPrompt);
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * Deterministic evaluation prompt used when Flash prompt generation is disabled
+     */
+    private String buildLocalEvaluationPrompt(WorksheetEvaluationRequest request) {
+        StringBuilder promptBuilder = new StringBuilder();
+        
+        promptBuilder.append("You are an expert teacher evaluating a student's completed worksheet. ");
+        promptBuilder.append("Evaluate the attached worksheet document and provide structured feedback.\n\n");
+        promptBuilder.append("WORKSHEET INFORMATION:\n");
+        promptBuilder.append("- Subject: ").append(request.getSubject()).append("\n");
+        promptBuilder.append("- Worksheet: ").append(request.getWorksheetTitle()).append("\n");
+        promptBuilder.append("- Evaluation Criteria: ").append(request.getEvaluationCriteria()).append("\n\n");
+        
+        promptBuilder.append("EVALUATION INSTRUCTIONS:\n");
+        promptBuilder.append("1. Identify all questions in the worksheet and their point values\n");
+        promptBuilder.append("2. Identify the student's answer for each question\n");
+        promptBuilder.append("3. Determine the correct answer or scoring rubric for each question from the worksheet\n");
+        promptBuilder.append("4. Evaluate each answer using the ").append(request.getEvaluationCriteria()).append(" criteria:\n");
+        promptBuilder.append("   - strict: Require exact answers and complete explanations\n");
+        promptBuilder.append("   - moderate: Allow reasonable variations and partial credit\n");
+        promptBuilder.append("   - lenient: Give benefit of doubt and generous partial credit\n");
+        promptBuilder.append("5. Provide specific feedback for each question\n");
+        promptBuilder.append("6. Calculate the total score, maximum possible score and percentage\n");
+        promptBuilder.append("7. Identify the student's strengths and areas for improvement\n");
+        promptBuilder.append("8. Provide constructive recommendations for the teacher");
+        
+        return promptBuilder.toString();
+    }
+    
+    /**
+     * Record how long a pipeline stage took, tagged with where its result came from
+     */
+    private void recordStage(String stage, String source, long millis) {
+        meterRegistry.timer("worksheet.evaluation.stage", "stage", stage, "source", source)
+            .record(millis, TimeUnit.MILLISECONDS);
+    }
+    
     /**
      * Build the request for prompt generation
      */
@@ -211,12 +329,9 @@ public class WorksheetEvaluationService {
 
         promptBuilder.append("Create a comprehensive evaluation prompt for analyzing a student's worksheet. ");
         promptBuilder.append("The prompt should instruct an AI to evaluate the worksheet document and provide structured feedback. ");
+        promptBuilder.append("The student's name will be given separately, so do not refer to a specific student. ");
         promptBuilder.append("\n\nContext:\n");
-        promptBuilder.append("- Student: ").append(request.getStudentName());
-        if (request.getStudentId() != null) {
-            promptBuilder.append(" (ID: ").append(request.getStudentId()).append(")");
-        }
-        promptBuilder.append("\n- Subject: ").append(request.getSubject());
+        promptBuilder.append("- Subject: ").append(request.getSubject());
         promptBuilder.append("\n- Worksheet: ").append(request.getWorksheetTitle());
         promptBuilder.append("\n- Evaluation Criteria: ").append(request.getEvaluationCriteria());
 
@@ -254,417 +369,38 @@ public class WorksheetEvaluationService {
      * Step 3: Evaluate worksheet using Gemini 2.5 Pro
      */
     private WorksheetEvaluationResponse.EvaluationResult evaluateWorksheetWithGemini(
-            String base64Document, String evaluationPrompt, String mimeType) throws Exception {
+            MultipartFile document, CompletableFuture<String> evaluationPrompt, String mimeType) throws Exception {
         
         logger.info("Evaluating worksheet using Gemini 2.5 Pro");
         
-        // Create request body with document and prompt
-        Map<String, Object> requestBody = createGeminiRequestBody(evaluationPrompt, base64Document, mimeType);
+        // Create request body with document first, then the prompt once it is ready
+        GeminiStreamingRequestBody requestBody = new GeminiStreamingRequestBody(objectMapper, evaluationPrompt, document, mimeType,
+            schemaGenerator.schemaFor(WorksheetEvaluationResponse.EvaluationResult.class));
         
         // Call Gemini 2.5 Pro
         String geminiUrl = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-pro:generateContent";
         String urlWithApiKey = geminiUrl + "?key=" + geminiApiKey;
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        ResponseEntity<Map> response = restTemplate.exchange(urlWithApiKey, HttpMethod.POST, entity, Map.class);
-        
-        String evaluationText = extractTextFromGeminiResponse(response.getBody());
+        String evaluationText = postToGemini(urlWithApiKey, requestBody);
         
         // Parse the evaluation response into structured format
-        WorksheetEvaluationResponse.EvaluationResult result = parseEvaluationResponse(evaluationText);
+        WorksheetEvaluationResponse.EvaluationResult result = responseParser.parseEvaluation(evaluationText);
         
         logger.info("Worksheet evaluation completed using Gemini 2.5 Pro");
         return result;
     }
     
     /**
-     * Create Gemini API request body
-     */
-    private Map<String, Object> createGeminiRequestBody(String textPrompt, String base64Document, String mimeType) {
-        Map<String, Object> requestBody = new HashMap<>();
-        List<Map<String, Object>> contents = new ArrayList<>();
-        Map<String, Object> content = new HashMap<>();
-        List<Map<String, Object>> parts = new ArrayList<>();
-        
-        // Add text prompt part
-        Map<String, Object> textPart = new HashMap<>();
-        textPart.put("text", textPrompt);
-        parts.add(textPart);
-        
-        // Add document part if provided
-        if (base64Document != null && mimeType != null) {
-            Map<String, Object> documentPart = new HashMap<>();
-            Map<String, Object> inlineData = new HashMap<>();
-            inlineData.put("mime_type", mimeType);
-            inlineData.put("data", base64Document);
-            documentPart.put("inline_data", inlineData);
-            parts.add(documentPart);
-        }
-        
-        content.put("parts", parts);
-        contents.add(content);
-        requestBody.put("contents", contents);
-        
-        return requestBody;
-    }
-    
-    /**
-     * Extract text from Gemini API response
+     * POST a streamed request body to the Gemini generateContent endpoint and
+     * return the response text, read straight off the response stream
      */
-    @SuppressWarnings("unchecked")
-    private String extractTextFromGeminiResponse(Map<String, Object> response) throws Exception {
-        try {
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
-            if (candidates != null && !candidates.isEmpty()) {
-                Map<String, Object> candidate = candidates.get(0);
-                Map<String, Object> content = (Map<String, Object>) candidate.get("content");
-                List<Map<String, Object>> parts = (List<Map<String, Object>>) content.get("parts");
-                if (parts != null && !parts.isEmpty()) {
-                    return (String) parts.get(0).get("text");
-                }
-            }
-            throw new Exception("No valid response received from Gemini API");
-        } catch (Exception e) {
-            logger.error("Error extracting text from Gemini response", e);
-            throw new Exception("Failed to parse Gemini API response: " + e.getMessage());
-        }
-    }
-    
-    /**
-     * Parse evaluation response into structured format
-     * Simplified to prioritize direct JSON parsing
-     */
-    private WorksheetEvaluationResponse.EvaluationResult parseEvaluationResponse(String evaluationText) {
-        WorksheetEvaluationResponse.EvaluationResult result = new WorksheetEvaluationResponse.EvaluationResult();
-        
-        try {
-            // First, try direct JSON parsing from the text
-            try {
-                // Check if the text is already a valid JSON
-                if (evaluationText.trim().startsWith("{") && evaluationText.trim().endsWith("}")) {
-                    JsonNode rootNode = objectMapper.readTree(evaluationText);
-                    JsonNode evaluationNode = rootNode.get("evaluation");
-                    
-                    if (evaluationNode != null) {
-                        // Direct mapping from JSON to result object
-                        result = objectMapper.treeToValue(evaluationNode, WorksheetEvaluationResponse.EvaluationResult.class);
-                        logger.info("Successfully parsed complete JSON response");
-                        return result;
-                    }
-                }
-            } catch (Exception e) {
-                logger.debug("Text is not a complete valid JSON, trying extraction methods: {}", e.getMessage());
-            }
-            
-            // If direct parsing failed, try extraction methods
-            extractJsonFromText(evaluationText, result);
-            
-            // If JSON extraction didn't work, try regex-based extraction
-            if (result.getTotalScore() == 0.0) {
-                extractScoresFromText(evaluationText, result);
-            }
-            
-            // Set default values for any fields that weren't extracted
-            if (result.getQuestionWiseResults() == null) {
-                result.setQuestionWiseResults(new ArrayList<>());
-            }
-            if (result.getStrengths() == null) {
-                result.setStrengths(new ArrayList<>());
-            }
-            if (result.getAreasForImprovement() == null) {
-                result.setAreasForImprovement(new ArrayList<>());
-            }
-            if (result.getOverallFeedback() == null || result.getOverallFeedback().isEmpty()) {
-                result.setOverallFeedback(evaluationText);
-            }
-            if (result.getTeacherRecommendations() == null || result.getTeacherRecommendations().isEmpty()) {
-                result.setTeacherRecommendations("Please review the detailed feedback above.");
-            }
-            
-            logger.info("Evaluation response parsed successfully");
-            
-        } catch (Exception e) {
-            logger.warn("Could not parse structured evaluation, using raw text", e);
-            result.setOverallFeedback(evaluationText);
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Extract JSON data from evaluation text
-     * Simplified to handle both formatted and unformatted JSON
-     */
-    private void extractJsonFromText(String text, WorksheetEvaluationResponse.EvaluationResult result) {
-        try {
-            // Try different approaches to extract JSON
-            String jsonStr = null;
-            
-            // Approach 1: Look for JSON code block
-            String codeBlockPattern = "```json\\s*\\{([\\s\\S]*?)\\}\\s*```";
-            java.util.regex.Pattern codeBlockRegex = java.util.regex.Pattern.compile(codeBlockPattern);
-            java.util.regex.Matcher codeBlockMatcher = codeBlockRegex.matcher(text);
-            
-            if (codeBlockMatcher.find()) {
-                // Extract the JSON from the code block
-                jsonStr = "{" + codeBlockMatcher.group(1) + "}";
-                logger.info("Found JSON code block in evaluation text");
-            } 
-            // Approach 2: Try to find the entire JSON object directly
-            else if (text.contains("\"evaluation\"")) {
-                try {
-                    // Find the outermost JSON object
-                    int startIndex = text.indexOf("{");
-                    if (startIndex >= 0) {
-                        // Find the matching closing brace for the outermost object
-                        int openBraces = 1;
-                        int endIndex = -1;
-                        
-                        for (int i = startIndex + 1; i < text.length(); i++) {
-                            if (text.charAt(i) == '{') {
-                                openBraces++;
-                            } else if (text.charAt(i) == '}') {
-                                openBraces--;
-                                if (openBraces == 0) {
-                                    endIndex = i + 1;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        if (endIndex > startIndex) {
-                            jsonStr = text.substring(startIndex, endIndex);
-                            logger.info("Found complete JSON object in evaluation text");
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.debug("Failed to extract complete JSON object: {}", e.getMessage());
-                }
-                
-                // Approach 3: If complete object extraction failed, try to extract just the evaluation part
-                if (jsonStr == null) {
-                    String jsonPattern = "\"evaluation\"\\s*:\\s*\\{";
-                    java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(jsonPattern);
-                    java.util.regex.Matcher matcher = pattern.matcher(text);
-                    
-                    if (matcher.find()) {
-                        int startIndex = matcher.start();
-                        
-                        // Find the matching closing brace for the evaluation object
-                        int openBraces = 0;
-                        int closeBraces = 0;
-                        int endIndex = startIndex;
-                        
-                        for (int i = startIndex; i < text.length(); i++) {
-                            if (text.charAt(i) == '{') {
-                                openBraces++;
-                            } else if (text.charAt(i) == '}') {
-                                closeBraces++;
-                                if (closeBraces == openBraces) {
-                                    endIndex = i + 1;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        jsonStr = "{" + text.substring(startIndex, endIndex);
-                        logger.info("Found evaluation JSON object in text");
-                    }
-                }
-            }
-            
-            // Process the extracted JSON
-            if (jsonStr != null) {
-                try {
-                    // Parse the JSON
-                    JsonNode rootNode = objectMapper.readTree(jsonStr);
-                    JsonNode evaluationNode = rootNode.get("evaluation");
-                    
-                    if (evaluationNode != null) {
-                        // Direct extraction of fields from JSON
-                        if (evaluationNode.has("totalScore")) {
-                            result.setTotalScore(evaluationNode.get("totalScore").asDouble());
-                        }
-                        
-                        if (evaluationNode.has("maxPossibleScore")) {
-                            result.setMaxPossibleScore(evaluationNode.get("maxPossibleScore").asDouble());
-                        }
-                        
-                        if (evaluationNode.has("percentage")) {
-                            result.setPercentage(evaluationNode.get("percentage").asDouble());
-                        }
-                        
-                        if (evaluationNode.has("questionsAnalyzed")) {
-                            result.setQuestionsAnalyzed(evaluationNode.get("questionsAnalyzed").asInt());
-                        }
-                        
-                        // Extract question-wise results if available
-                        if (evaluationNode.has("questionWiseResults") && evaluationNode.get("questionWiseResults").isArray()) {
-                            JsonNode questionResults = evaluationNode.get("questionWiseResults");
-                            List<WorksheetEvaluationResponse.QuestionResult> questionResultsList = new ArrayList<>();
-                            
-                            for (JsonNode questionNode : questionResults) {
-                                WorksheetEvaluationResponse.QuestionResult questionResult = new WorksheetEvaluationResponse.QuestionResult();
-                                
-                                if (questionNode.has("questionNumber")) {
-                                    questionResult.setQuestionNumber(questionNode.get("questionNumber").asText());
-                                }
-                                
-                                if (questionNode.has("questionText")) {
-                                    questionResult.setQuestionText(questionNode.get("questionText").asText());
-                                }
-                                
-                                if (questionNode.has("studentAnswer")) {
-                                    questionResult.setStudentAnswer(questionNode.get("studentAnswer").asText());
-                                }
-                                
-                                if (questionNode.has("correctAnswer")) {
-                                    questionResult.setCorrectAnswer(questionNode.get("correctAnswer").asText());
-                                }
-                                
-                                // Handle different field names for scores
-                                if (questionNode.has("pointsAwarded")) {
-                                    questionResult.setPointsAwarded(questionNode.get("pointsAwarded").asDouble());
-                                } else if (questionNode.has("scoreAwarded")) {
-                                    questionResult.setPointsAwarded(questionNode.get("scoreAwarded").asDouble());
-                                } else if (questionNode.has("score")) {
-                                    questionResult.setPointsAwarded(questionNode.get("score").asDouble());
-                                }
-                                
-                                if (questionNode.has("maxPoints")) {
-                                    questionResult.setMaxPoints(questionNode.get("maxPoints").asDouble());
-                                } else if (questionNode.has("maxScore")) {
-                                    questionResult.setMaxPoints(questionNode.get("maxScore").asDouble());
-                                }
-                                
-                                if (questionNode.has("feedback")) {
-                                    questionResult.setFeedback(questionNode.get("feedback").asText());
-                                }
-                                
-                                questionResultsList.add(questionResult);
-                            }
-                            
-                            result.setQuestionWiseResults(questionResultsList);
-                        }
-                        
-                        // Extract other evaluation fields
-                        if (evaluationNode.has("overallFeedback")) {
-                            result.setOverallFeedback(evaluationNode.get("overallFeedback").asText());
-                        }
-                        
-                        if (evaluationNode.has("strengths") && evaluationNode.get("strengths").isArray()) {
-                            List<String> strengths = new ArrayList<>();
-                            for (JsonNode strength : evaluationNode.get("strengths")) {
-                                strengths.add(strength.asText());
-                            }
-                            result.setStrengths(strengths);
-                        }
-                        
-                        if (evaluationNode.has("areasForImprovement") && evaluationNode.get("areasForImprovement").isArray()) {
-                            List<String> areasForImprovement = new ArrayList<>();
-                            for (JsonNode area : evaluationNode.get("areasForImprovement")) {
-                                areasForImprovement.add(area.asText());
-                            }
-                            result.setAreasForImprovement(areasForImprovement);
-                        }
-                        
-                        if (evaluationNode.has("teacherRecommendations")) {
-                            result.setTeacherRecommendations(evaluationNode.get("teacherRecommendations").asText());
-                        }
-                        
-                        logger.info("Successfully extracted JSON data: score={}/{} ({}%)", 
-                            result.getTotalScore(), result.getMaxPossibleScore(), result.getPercentage());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to parse extracted JSON: {}", e.getMessage());
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to extract JSON data from evaluation text: {}", e.getMessage());
-        }
-    }
-    
-    /**
-     * Extract scores from evaluation text
-     * Simplified to directly parse JSON data from the text when possible
-     */
-    private void extractScoresFromText(String text, WorksheetEvaluationResponse.EvaluationResult result) {
-        try {
-            // First try to parse as JSON
-            if (text.contains("\"evaluation\"")) {
-                try {
-                    // Try to extract JSON object from the text
-                    int startIndex = text.indexOf("{");
-                    int endIndex = text.lastIndexOf("}") + 1;
-                    
-                    if (startIndex >= 0 && endIndex > startIndex) {
-                        String jsonStr = text.substring(startIndex, endIndex);
-                        JsonNode rootNode = objectMapper.readTree(jsonStr);
-                        JsonNode evaluationNode = rootNode.get("evaluation");
-                        
-                        if (evaluationNode != null) {
-                            // Direct extraction of fields from JSON
-                            if (evaluationNode.has("totalScore")) {
-                                result.setTotalScore(evaluationNode.get("totalScore").asDouble());
-                            }
-                            
-                            if (evaluationNode.has("maxPossibleScore")) {
-                                result.setMaxPossibleScore(evaluationNode.get("maxPossibleScore").asDouble());
-                            }
-                            
-                            if (evaluationNode.has("percentage")) {
-                                result.setPercentage(evaluationNode.get("percentage").asDouble());
-                            }
-                            
-                            if (evaluationNode.has("questionsAnalyzed")) {
-                                result.setQuestionsAnalyzed(evaluationNode.get("questionsAnalyzed").asInt());
-                            }
-                            
-                            logger.info("Successfully extracted evaluation data from JSON: score={}/{} ({}%)", 
-                                result.getTotalScore(), result.getMaxPossibleScore(), result.getPercentage());
-                            return;
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.debug("Could not parse JSON directly, falling back to regex: {}", e.getMessage());
-                }
-            }
-            
-            // Fallback to regex patterns if JSON parsing fails
-            java.util.regex.Pattern scorePattern = java.util.regex.Pattern.compile(
-                "(?i)(?:score|total|marks?)\\s*:?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:out\\s*of|/|\\s+)\\s*(\\d+(?:\\.\\d+)?)"
-            );
-            
-            java.util.regex.Matcher matcher = scorePattern.matcher(text);
-            if (matcher.find()) {
-                double score = Double.parseDouble(matcher.group(1));
-                double maxScore = Double.parseDouble(matcher.group(2));
-                
-                result.setTotalScore(score);
-                result.setMaxPossibleScore(maxScore);
-                result.setPercentage(maxScore > 0 ? (score / maxScore) * 100 : 0);
-                
-                logger.info("Extracted scores using regex: {}/{} ({}%)", score, maxScore, result.getPercentage());
-            }
-            
-            // Look for number of questions
-            java.util.regex.Pattern questionPattern = java.util.regex.Pattern.compile(
-                "(?i)(\\d+)\\s+questions?"
-            );
-            
-            matcher = questionPattern.matcher(text);
-            if (matcher.find()) {
-                int questionCount = Integer.parseInt(matcher.group(1));
-                result.setQuestionsAnalyzed(questionCount);
-            }
-            
-        } catch (Exception e) {
-            logger.warn("Could not extract numerical scores from text", e);
+    private String postToGemini(String urlWithApiKey, GeminiStreamingRequestBody requestBody) throws Exception {
+        String text = restTemplate.execute(urlWithApiKey, HttpMethod.POST, requestBody,
+            response -> responseParser.extractText(response.getBody()));
+        if (text == null) {
+            throw new Exception("Failed to parse Gemini API response: No valid response received from Gemini API");
         }
+        return text;
     }
     
     /**
@@ -677,23 +413,47 @@ public class WorksheetEvaluationService {
             try {
                 logger.info("Starting question paper analysis for subject: {}", subject);
                 
-                // Step 1: Validate and process question paper file
-                String base64Document = validateAndProcessFile(questionPaper);
-                
-                // Step 2: Create specialized prompt for question paper analysis
-                String analysisPrompt = buildQuestionPaperAnalysisPrompt(subject);
-                
-                // Step 3: Analyze question paper using Gemini
-                QuestionPaperAnalysisResult result = analyzeQuestionPaperWithGemini(
-                    base64Document, analysisPrompt, questionPaper.getContentType());
-                
-                logger.info("Question paper analysis completed successfully");
-                return result;
+                // Step 1: Validate question paper file
+                validateFile(questionPaper);
                 
+                return analysisCache.keyFor(questionPaper, subject);
             } catch (Exception e) {
-                logger.error("Error analyzing question paper", e);
-                return new QuestionPaperAnalysisResult("error", "Failed to analyze question paper: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, evaluationExecutor).thenCompose(key -> {
+            // Reuse a previous (or in-flight) analysis of the same document and subject if there is one
+            AtomicBoolean analyzed = new AtomicBoolean();
+            CompletableFuture<QuestionPaperAnalysisResult> analysis = analysisCache.get(key, () -> {
+                analyzed.set(true);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        // Step 2: Create specialized prompt for question paper analysis
+                        String analysisPrompt = buildQuestionPaperAnalysisPrompt(subject);
+                        
+                        // Step 3: Analyze question paper using Gemini
+                        return analyzeQuestionPaperWithGemini(questionPaper, analysisPrompt, questionPaper.getContentType());
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, evaluationExecutor);
+            });
+            
+            if (analyzed.get()) {
+                return analysis.thenApply(result -> {
+                    logger.info("Question paper analysis completed successfully");
+                    return result;
+                });
             }
+            logger.info("Using cached question paper analysis for subject: {}", subject);
+            return analysis;
+        }).exceptionally(error -> {
+            Throwable cause = unwrap(error);
+            if (cause instanceof RejectedExecutionException) {
+                // A saturated executor is not an analysis failure; let ExecutorRejectionHandler turn it into a 503
+                throw new CompletionException(cause);
+            }
+            logger.error("Error analyzing question paper", cause);
+            return new QuestionPaperAnalysisResult("error", "Failed to analyze question paper: " + cause.getMessage());
         });
     }
     
@@ -711,15 +471,18 @@ public class WorksheetEvaluationService {
             try {
                 logger.info("Starting answer sheet evaluation for student: {}", request.getStudentName());
                 
-                // Step 1: Validate and process answer sheet file
-                String base64Document = validateAndProcessFile(answerSheet);
+                // Step 1: Validate answer sheet file
+                validateFile(answerSheet);
                 
                 // Step 2: Create evaluation prompt using structured question data
                 String evaluationPrompt = buildAnswerSheetEvaluationPrompt(questionAnalysis, request);
                 
                 // Step 3: Evaluate answer sheet using Gemini 2.5 Pro
+                long stageStart = System.currentTimeMillis();
                 WorksheetEvaluationResponse.EvaluationResult evaluationResult = 
-                    evaluateAnswerSheetWithGemini(base64Document, evaluationPrompt, answerSheet.getContentType());
+                    evaluateAnswerSheetWithGemini(answerSheet, evaluationPrompt, answerSheet.getContentType());
+                long evaluationMillis = System.currentTimeMillis() - stageStart;
+                recordStage("answerSheetEvaluation", "gemini", evaluationMillis);
                 
                 // Step 4: Create response
                 WorksheetEvaluationResponse response = new WorksheetEvaluationResponse(
@@ -732,6 +495,9 @@ public class WorksheetEvaluationService {
                 
                 long endTime = System.currentTimeMillis();
                 response.setProcessingTime(String.format("%.1fs", (endTime - startTime) / 1000.0));
+                Map<String, Long> stageTimings = new LinkedHashMap<>();
+                stageTimings.put("evaluation", evaluationMillis);
+                response.setStageTimings(stageTimings);
                 
                 logger.info("Answer sheet evaluation completed successfully for student: {}", request.getStudentName());
                 return response;
@@ -740,7 +506,184 @@ public class WorksheetEvaluationService {
                 logger.error("Error evaluating answer sheet for student: {}", request.getStudentName(), e);
                 return new WorksheetEvaluationResponse("error", "Failed to evaluate answer sheet: " + e.getMessage());
             }
-        });
+        }, evaluationExecutor);
+    }
+    
+    /**
+     * NEW: Complete two-document evaluation - analyze the question paper, then evaluate the
+     * answer sheet against it. Purely composed: no thread waits for either stage.
+     * The answer sheet is validated first, so an invalid upload never costs a Gemini
+     * analysis call. Stage durations go to stageTimings.
+     */
+    public CompletableFuture<WorksheetEvaluationResponse> evaluateWithQuestionPaper(
+            MultipartFile questionPaper,
+            MultipartFile answerSheet,
+            QuestionPaperEvaluationRequest request) {
+        
+        long startTime = System.currentTimeMillis();
+        Map<String, Long> stageTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+        
+        // Stage: answer sheet validation (metadata only)
+        try {
+            validateFile(answerSheet);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid answer sheet for student: {}: {}", request.getStudentName(), e.getMessage());
+            return CompletableFuture.completedFuture(new WorksheetEvaluationResponse("error", 
+                "Failed to evaluate answer sheet: " + e.getMessage()));
+        } finally {
+            stageTimings.put("answerSheetPreparation", System.currentTimeMillis() - startTime);
+        }
+        
+        // Stage: question paper analysis (cached per document and subject)
+        long analysisStart = System.currentTimeMillis();
+        return analyzeQuestionPaper(questionPaper, request.getSubject())
+            .whenComplete((questionAnalysis, error) ->
+                stageTimings.put("questionPaperAnalysis", System.currentTimeMillis() - analysisStart))
+            .thenCompose(questionAnalysis -> {
+                if ("error".equals(questionAnalysis.getStatus())) {
+                    logger.error("Question paper analysis failed: {}", questionAnalysis.getError());
+                    return CompletableFuture.completedFuture(new WorksheetEvaluationResponse("error", 
+                        "Failed to analyze question paper: " + questionAnalysis.getError()));
+                }
+                
+                logger.info("Question paper analysis completed successfully. Total questions: {}, Total marks: {}", 
+                           questionAnalysis.getTotalQuestions(), questionAnalysis.getTotalMarks());
+                
+                // Step 2: Evaluate answer sheet against parsed questions
+                return evaluateAnswerSheetAgainstQuestions(answerSheet, questionAnalysis, request);
+            })
+            .thenApply(response -> {
+                if (response.getStageTimings() != null) {
+                    stageTimings.putAll(response.getStageTimings());
+                }
+                response.setStageTimings(stageTimings);
+                response.setProcessingTime(String.format("%.1fs", (System.currentTimeMillis() - startTime) / 1000.0));
+                return response;
+            });
+    }
+    
+    /**
+     * Class evaluation: analyze the question paper once, then evaluate every answer sheet
+     * against it with at most worksheet.batch.max-concurrency evaluations in flight.
+     * Events are delivered to eventSink as each stage completes, students in completion order.
+     */
+    public CompletableFuture<Void> evaluateClass(
+            MultipartFile questionPaper,
+            List<MultipartFile> answerSheets,
+            List<QuestionPaperEvaluationRequest> requests,
+            Consumer<ClassEvaluationEvent> eventSink) {
+        
+        long startTime = System.currentTimeMillis();
+        String subject = requests.get(0).getSubject();
+        
+        logger.info("Starting class evaluation for subject: {}, answer sheets: {}", subject, answerSheets.size());
+        
+        return analyzeQuestionPaper(questionPaper, subject)
+            .thenCompose(questionAnalysis -> {
+                if ("error".equals(questionAnalysis.getStatus())) {
+                    logger.error("Question paper analysis failed for class evaluation: {}", questionAnalysis.getError());
+                    eventSink.accept(ClassEvaluationEvent.error(
+                        "Failed to analyze question paper: " + questionAnalysis.getError()));
+                    return CompletableFuture.completedFuture(null);
+                }
+                
+                eventSink.accept(ClassEvaluationEvent.analysis(questionAnalysis));
+                
+                ClassEvaluationBatch batch = new ClassEvaluationBatch(
+                    answerSheets, requests, questionAnalysis, eventSink, startTime);
+                return batch.start(batchConcurrency);
+            });
+    }
+    
+    /**
+     * Bounded fan-out over the answer sheets of one class evaluation.
+     * Each completed evaluation starts the next pending one, so no thread waits for a slot.
+     */
+    private class ClassEvaluationBatch {
+        
+        private final List<MultipartFile> answerSheets;
+        private final List<QuestionPaperEvaluationRequest> requests;
+        private final QuestionPaperAnalysisResult questionAnalysis;
+        private final Consumer<ClassEvaluationEvent> eventSink;
+        private final long startTime;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        
+        ClassEvaluationBatch(List<MultipartFile> answerSheets,
+                             List<QuestionPaperEvaluationRequest> requests,
+                             QuestionPaperAnalysisResult questionAnalysis,
+                             Consumer<ClassEvaluationEvent> eventSink,
+                             long startTime) {
+            this.answerSheets = answerSheets;
+            this.requests = requests;
+            this.questionAnalysis = questionAnalysis;
+            this.eventSink = eventSink;
+            this.startTime = startTime;
+        }
+        
+        CompletableFuture<Void> start(int concurrency) {
+            if (answerSheets.isEmpty()) {
+                complete();
+                return done;
+            }
+            int initial = Math.min(Math.max(concurrency, 1), answerSheets.size());
+            for (int i = 0; i < initial; i++) {
+                evaluateNext();
+            }
+            return done;
+        }
+        
+        private void evaluateNext() {
+            int index = nextIndex.getAndIncrement();
+            if (index >= answerSheets.size()) {
+                return;
+            }
+            
+            MultipartFile answerSheet = answerSheets.get(index);
+            CompletableFuture<WorksheetEvaluationResponse> evaluation;
+            try {
+                evaluation = evaluateAnswerSheetAgainstQuestions(answerSheet, questionAnalysis, requests.get(index));
+            } catch (RejectedExecutionException e) {
+                // Evaluation pool is saturated; report this student as failed rather than stalling the batch
+                evaluation = CompletableFuture.failedFuture(e);
+            }
+            evaluation
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        logger.error("Unexpected error evaluating answer sheet {}", answerSheet.getOriginalFilename(), throwable);
+                        response = new WorksheetEvaluationResponse("error", "Unexpected error: " + throwable.getMessage());
+                    }
+                    if ("error".equals(response.getStatus())) {
+                        failed.incrementAndGet();
+                    }
+                    
+                    try {
+                        eventSink.accept(ClassEvaluationEvent.student(index, answerSheet.getOriginalFilename(), response));
+                    } catch (Exception e) {
+                        logger.warn("Failed to deliver class evaluation result {}: {}", index, e.getMessage());
+                    }
+                    
+                    if (finished.incrementAndGet() == answerSheets.size()) {
+                        complete();
+                    } else {
+                        evaluateNext();
+                    }
+                });
+        }
+        
+        private void complete() {
+            long endTime = System.currentTimeMillis();
+            String processingTime = String.format("%.1fs", (endTime - startTime) / 1000.0);
+            logger.info("Class evaluation completed. Answer sheets: {}, failed: {}, time: {}", 
+                       answerSheets.size(), failed.get(), processingTime);
+            try {
+                eventSink.accept(ClassEvaluationEvent.summary(answerSheets.size() - failed.get(), failed.get(), processingTime));
+            } finally {
+                done.complete(null);
+            }
+        }
     }
     
     /**
@@ -752,40 +695,16 @@ public class WorksheetEvaluationService {
         promptBuilder.append("You are an expert educational content analyzer. Analyze the provided question paper document and extract structured information about all questions.\n\n");
         promptBuilder.append("Subject: ").append(subject).append("\n\n");
         
-        promptBuilder.append("IMPORTANT: You must return your response in valid JSON format with the following exact structure:\n\n");
-        promptBuilder.append("{\n");
-        promptBuilder.append("  \"examTitle\": \"string\",\n");
-        promptBuilder.append("  \"subject\": \"string\",\n");
-        promptBuilder.append("  \"totalMarks\": number,\n");
-        promptBuilder.append("  \"totalQuestions\": number,\n");
-        promptBuilder.append("  \"instructions\": \"string\",\n");
-        promptBuilder.append("  \"questions\": [\n");
-        promptBuilder.append("    {\n");
-        promptBuilder.append("      \"questionNumber\": \"string\",\n");
-        promptBuilder.append("      \"questionText\": \"string\",\n");
-        promptBuilder.append("      \"questionType\": \"MCQ|SHORT_ANSWER|ESSAY|TRUE_FALSE|FILL_BLANK\",\n");
-        promptBuilder.append("      \"marks\": number,\n");
-        promptBuilder.append("      \"options\": [\"string\"] (only for MCQ),\n");
-        promptBuilder.append("      \"correctAnswer\": \"string\" (for definitive answers),\n");
-        promptBuilder.append("      \"scoringRubric\": \"string\" (for subjective questions),\n");
-        promptBuilder.append("      \"keywords\": [\"string\"] (expected keywords for partial scoring),\n");
-        promptBuilder.append("      \"subQuestions\": [] (for questions with parts a, b, c etc.)\n");
-        promptBuilder.append("    }\n");
-        promptBuilder.append("  ]\n");
-        promptBuilder.append("}\n\n");
-        
         promptBuilder.append("Instructions:\n");
         promptBuilder.append("1. Carefully read the entire question paper\n");
         promptBuilder.append("2. Extract the exam title and total marks\n");
         promptBuilder.append("3. Identify each question with its number, text, and point value\n");
-        promptBuilder.append("4. Determine the question type (MCQ, short answer, essay, etc.)\n");
+        promptBuilder.append("4. Determine the question type: MCQ, SHORT_ANSWER, ESSAY, TRUE_FALSE or FILL_BLANK\n");
         promptBuilder.append("5. For MCQ questions, extract all options\n");
         promptBuilder.append("6. For questions with definitive answers, provide the correct answer\n");
         promptBuilder.append("7. For subjective questions, create a scoring rubric based on the question requirements\n");
         promptBuilder.append("8. Identify key terms/concepts that should be present in good answers\n");
-        promptBuilder.append("9. Handle sub-questions (parts a, b, c) as separate entries in subQuestions array\n\n");
-        
-        promptBuilder.append("Return ONLY the JSON response, no additional text or formatting.");
+        promptBuilder.append("9. Handle sub-questions (parts a, b, c) as separate entries in subQuestions array\n");
         
         return promptBuilder.toString();
     }
@@ -839,36 +758,7 @@ public class WorksheetEvaluationService {
         promptBuilder.append("6. Identify overall strengths and areas for improvement\n");
         promptBuilder.append("7. Provide constructive teacher recommendations\n\n");
         
-        promptBuilder
-                .append("CRITICAL: You must strictly follow the Output Format as JSON with the following structure:\n")
-                .append("{\n")
-                .append("  \"evaluation\": {\n")
-                .append("    \"totalScore\": 0.0,\n")
-                .append("    \"maxPossibleScore\": 100.0,\n")
-                .append("    \"percentage\": 0.0,\n")
-                .append("    \"questionsAnalyzed\": 0,\n")
-                .append("    \"questionWiseResults\": [\n")
-                .append("      {\n")
-                .append("        \"questionNumber\": \"1\",\n")
-                .append("        \"questionText\": \"Question text here\",\n")
-                .append("        \"studentAnswer\": \"Student's answer\",\n")
-                .append("        \"correctAnswer\": \"Expected answer\",\n")
-                .append("        \"pointsAwarded\": 0.0,\n")
-                .append("        \"maxPoints\": 0.0,\n")
-                .append("        \"feedback\": \"Detailed feedback for this question\"\n")
-                .append("      }\n")
-                .append("    ],\n")
-                .append("    \"overallFeedback\": \"Overall assessment of the student's performance\",\n")
-                .append("    \"strengths\": [\"List of student's strengths\"],\n")
-                .append("    \"areasForImprovement\": [\"Areas where student can improve\"],\n")
-                .append("    \"teacherRecommendations\": \"Specific recommendations for the teacher\"\n")
-                .append("  }\n")
-                .append("}\n\n");
-        
         promptBuilder.append("IMPORTANT: \n");
-        promptBuilder.append("- Return ONLY the JSON response in the exact format specified above\n");
-        promptBuilder.append("- Do not include any additional text, explanations, or markdown formatting\n");
-        promptBuilder.append("- Ensure all numeric values are properly formatted as numbers, not strings\n");
         promptBuilder.append("- Include detailed feedback for each question in the questionWiseResults array\n");
         promptBuilder.append("- Calculate accurate totalScore, maxPossibleScore, and percentage values\n");
         promptBuilder.append("- Provide meaningful strengths, areas for improvement, and teacher recommendations");
@@ -880,25 +770,19 @@ public class WorksheetEvaluationService {
      * Analyze question paper using Gemini
      */
     private QuestionPaperAnalysisResult analyzeQuestionPaperWithGemini(
-            String base64Document, String analysisPrompt, String mimeType) throws Exception {
+            MultipartFile document, String analysisPrompt, String mimeType) throws Exception {
         
         logger.info("Analyzing question paper using Gemini");
         
         // Create request body with document and prompt
-        Map<String, Object> requestBody = createGeminiRequestBody(analysisPrompt, base64Document, mimeType);
+        GeminiStreamingRequestBody requestBody = new GeminiStreamingRequestBody(objectMapper, analysisPrompt, document, mimeType,
+            schemaGenerator.schemaFor(QuestionPaperAnalysisResult.class, "status", "error"));
         
         // Call Gemini 2.5 Pro for analysis
         String geminiUrl = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent";
         String urlWithApiKey = geminiUrl + "?key=" + geminiApiKey;
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        ResponseEntity<Map> response = restTemplate.exchange(urlWithApiKey, HttpMethod.POST, entity, Map.class);
-        
-        String analysisText = extractTextFromGeminiResponse(response.getBody());
+        String analysisText = postToGemini(urlWithApiKey, requestBody);
         
         // Log the complete LLM output for debugging
         logger.info("Complete LLM output from question paper analysis: {}", analysisText);
@@ -914,28 +798,22 @@ public class WorksheetEvaluationService {
      * Evaluate answer sheet using Gemini 2.5 Pro with structured question data
      */
     private WorksheetEvaluationResponse.EvaluationResult evaluateAnswerSheetWithGemini(
-            String base64Document, String evaluationPrompt, String mimeType) throws Exception {
+            MultipartFile document, String evaluationPrompt, String mimeType) throws Exception {
         
         logger.info("Evaluating answer sheet using Gemini 2.5 Pro");
         
         // Create request body with document and prompt
-        Map<String, Object> requestBody = createGeminiRequestBody(evaluationPrompt, base64Document, mimeType);
+        GeminiStreamingRequestBody requestBody = new GeminiStreamingRequestBody(objectMapper, evaluationPrompt, document, mimeType,
+            schemaGenerator.schemaFor(WorksheetEvaluationResponse.EvaluationResult.class));
         
         // Call Gemini 2.5 Pro
         String geminiUrl = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-pro:generateContent";
         String urlWithApiKey = geminiUrl + "?key=" + geminiApiKey;
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        ResponseEntity<Map> response = restTemplate.exchange(urlWithApiKey, HttpMethod.POST, entity, Map.class);
-        
-        String evaluationText = extractTextFromGeminiResponse(response.getBody());
+        String evaluationText = postToGemini(urlWithApiKey, requestBody);
         
         // Parse the evaluation response into structured format
-        WorksheetEvaluationResponse.EvaluationResult result = parseEvaluationResponse(evaluationText);
+        WorksheetEvaluationResponse.EvaluationResult result = responseParser.parseEvaluation(evaluationText);
         
         logger.info("Answer sheet evaluation completed using Gemini 2.5 Pro");
         return result;
@@ -946,17 +824,8 @@ public class WorksheetEvaluationService {
      */
     private QuestionPaperAnalysisResult parseQuestionPaperAnalysis(String analysisText) {
         try {
-            // Try to parse as JSON first
-            String cleanedJson = analysisText.trim();
-            if (cleanedJson.startsWith("```json")) {
-                cleanedJson = cleanedJson.substring(7);
-            }
-            if (cleanedJson.endsWith("```")) {
-                cleanedJson = cleanedJson.substring(0, cleanedJson.length() - 3);
-            }
-            cleanedJson = cleanedJson.trim();
-            
-            QuestionPaperAnalysisResult result = objectMapper.readValue(cleanedJson, QuestionPaperAnalysisResult.class);
+            // Bind the JSON object, ignoring any markdown fences around it
+            QuestionPaperAnalysisResult result = responseParser.readEmbeddedJson(analysisText, QuestionPaperAnalysisResult.class);
             result.setStatus("success");
             
             logger.info("Successfully parsed question paper analysis JSON");
@@ -979,6 +848,11 @@ public class WorksheetEvaluationService {
         }
     }
     
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause() : throwable;
+    }
+    
     /**
      * Health check method
      */
@@ -988,6 +862,9 @@ public class WorksheetEvaluationService {
         status.put("status", "UP");
         status.put("timestamp", String.valueOf(System.currentTimeMillis()));
         status.put("geminiModel", geminiFlashModel);
+        status.put("analysisCacheEntries", String.valueOf(analysisCache.size()));
+        status.put("promptMode", promptMode);
+        status.put("promptCacheEntries", String.valueOf(promptCache.size()));
         return status;
     }
 }
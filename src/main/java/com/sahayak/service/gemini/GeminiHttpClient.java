@@ -0,0 +1,139 @@
+package com.sahayak.service.gemini;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single shared HTTP client for all Gemini / Veo / future-planner REST calls.
+ *
+ * Backed by one java.net.http.HttpClient, so connections are kept alive and
+ * pooled, requests to generativelanguage.googleapis.com are multiplexed over
+ * HTTP/2, and TLS sessions are reused instead of handshaking per call. The
+ * same client is exposed as a RestTemplate for the Spring-based call sites.
+ *
+ * Both use gemini.http.read-timeout-seconds: the RestTemplate as its read
+ * timeout, direct HttpClient calls through requests built with newRequest.
+ * The client's own work and the writing of request bodies run on two
+ * separate fixed-size pools, so a burst of calls queues instead of spawning
+ * threads, and blocked body writers cannot starve response handling.
+ */
+@Component
+public class GeminiHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiHttpClient.class);
+
+    private final HttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final Duration requestTimeout;
+    private final ThreadPoolExecutor httpExecutor;
+    private final ThreadPoolExecutor bodyExecutor;
+
+    public GeminiHttpClient(
+            @Value("${gemini.http.connect-timeout-seconds:30}") long connectTimeoutSeconds,
+            @Value("${gemini.http.read-timeout-seconds:300}") long readTimeoutSeconds,
+            @Value("${gemini.http.client-threads:8}") int clientThreads,
+            @Value("${gemini.http.body-threads:32}") int bodyThreads,
+            @Value("${gemini.http.trust-all-certificates:false}") boolean trustAllCertificates) {
+
+        this.requestTimeout = Duration.ofSeconds(readTimeoutSeconds);
+        // Runs the client's response handling
+        this.httpExecutor = createPool("gemini-http-", clientThreads);
+        // Writes RestTemplate request bodies, which block until the client asks for more data
+        this.bodyExecutor = createPool("gemini-http-body-", bodyThreads);
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(httpExecutor);
+
+        if (trustAllCertificates) {
+            SSLContext sslContext = createPermissiveSslContext();
+            if (sslContext != null) {
+                builder.sslContext(sslContext);
+            }
+        }
+
+        this.httpClient = builder.build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, bodyExecutor);
+        requestFactory.setReadTimeout(requestTimeout);
+        this.restTemplate = new RestTemplate(requestFactory);
+
+        logger.info("Created shared Gemini HTTP client (HTTP/2, connect timeout {}s, read timeout {}s, {} client / {} body threads)",
+                   connectTimeoutSeconds, readTimeoutSeconds, clientThreads, bodyThreads);
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * Start a request for the shared HttpClient, with the configured read timeout
+     */
+    public HttpRequest.Builder newRequest(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(requestTimeout);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyExecutor.shutdown();
+        httpExecutor.shutdown();
+    }
+
+    /**
+     * Fixed-size pool of daemon threads whose idle threads time out; excess work waits in the queue
+     */
+    private static ThreadPoolExecutor createPool(String threadNamePrefix, int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Create an SSL context that accepts all certificates (for development only)
+     */
+    private SSLContext createPermissiveSslContext() {
+        try {
+            TrustManager[] trustAllCerts = new TrustManager[] {
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() { return null; }
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) { }
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) { }
+                }
+            };
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+            return sslContext;
+        } catch (Exception e) {
+            logger.warn("Failed to create permissive SSL context, using default: {}", e.getMessage());
+            return null;
+        }
+    }
+}
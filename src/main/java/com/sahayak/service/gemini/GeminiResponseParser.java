@@ -0,0 +1,229 @@
+package com.sahayak.service.gemini;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.model.WorksheetEvaluationResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses Gemini generateContent responses without building intermediate Maps
+ * or JsonNode trees.
+ *
+ * The response envelope is walked with a streaming JsonParser to pull out
+ * candidates[0].content.parts[*].text, and the JSON the model embeds in that
+ * text is bound once, straight into the typed model classes. Regex patterns
+ * used by the plain-text fallback are compiled once.
+ */
+@Component
+public class GeminiResponseParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiResponseParser.class);
+
+    private static final Pattern EVALUATION_KEY_PATTERN = Pattern.compile("\"evaluation\"\\s*:\\s*\\{");
+
+    private static final Pattern SCORE_PATTERN = Pattern.compile(
+        "(?i)(?:score|total|marks?)\\s*:?\\s*(\\d+(?:\\.\\d+)?)\\s*(?:out\\s*of|/|\\s+)\\s*(\\d+(?:\\.\\d+)?)");
+
+    private static final Pattern QUESTION_COUNT_PATTERN = Pattern.compile("(?i)(\\d+)\\s+questions?");
+
+    private final ObjectMapper objectMapper;
+
+    public GeminiResponseParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Extract the concatenated text parts of the first candidate, or null if
+     * the response carries no text. Thought parts are skipped.
+     */
+    public String extractText(InputStream responseBody) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(responseBody)) {
+            return extractText(parser);
+        }
+    }
+
+    public String extractText(String responseBody) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(responseBody)) {
+            return extractText(parser);
+        }
+    }
+
+    private String extractText(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("candidates".equals(field) && value == JsonToken.START_ARRAY) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                // Only the first candidate is used; nothing after it needs to be read
+                return readCandidateText(parser);
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private String readCandidateText(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("content".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String contentField = parser.currentName();
+                    JsonToken contentValue = parser.nextToken();
+                    if ("parts".equals(contentField) && contentValue == JsonToken.START_ARRAY) {
+                        return readPartsText(parser);
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private String readPartsText(JsonParser parser) throws IOException {
+        String firstText = null;
+        StringBuilder combined = null;
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String text = null;
+            boolean thought = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+                    text = parser.getText();
+                } else if ("thought".equals(field)) {
+                    thought = value == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (text == null || thought) {
+                continue;
+            }
+            // Single-part responses (the common case) are returned without copying
+            if (firstText == null) {
+                firstText = text;
+            } else {
+                if (combined == null) {
+                    combined = new StringBuilder(firstText);
+                }
+                combined.append(text);
+            }
+        }
+        return combined != null ? combined.toString() : firstText;
+    }
+
+    /**
+     * Bind the first JSON value embedded in model output text (optionally
+     * wrapped in markdown fences or surrounding prose) to the given type.
+     * Trailing text after the value is ignored.
+     */
+    public <T> T readEmbeddedJson(String text, Class<T> type) throws IOException {
+        int start = text.indexOf('{');
+        if (start < 0) {
+            throw new IOException("No JSON object found in model output");
+        }
+        return readValueAt(text, start, type);
+    }
+
+    /**
+     * Parse the evaluation the model returned into a typed result.
+     *
+     * Accepts {"evaluation": {...}}, a bare "evaluation": {...} member, or the
+     * evaluation object itself. Falls back to scraping scores from plain text.
+     */
+    public WorksheetEvaluationResponse.EvaluationResult parseEvaluation(String evaluationText) {
+        WorksheetEvaluationResponse.EvaluationResult result = null;
+
+        try {
+            Matcher evaluationKey = EVALUATION_KEY_PATTERN.matcher(evaluationText);
+            if (evaluationKey.find()) {
+                // Bind the object that follows "evaluation": directly
+                result = readValueAt(evaluationText, evaluationKey.end() - 1,
+                    WorksheetEvaluationResponse.EvaluationResult.class);
+            } else if (evaluationText.indexOf('{') >= 0) {
+                result = readEmbeddedJson(evaluationText, WorksheetEvaluationResponse.EvaluationResult.class);
+            }
+            if (result != null) {
+                logger.info("Parsed evaluation JSON: score={}/{} ({}%)",
+                    result.getTotalScore(), result.getMaxPossibleScore(), result.getPercentage());
+            }
+        } catch (IOException e) {
+            logger.debug("Evaluation text is not valid JSON, falling back to text extraction: {}", e.getMessage());
+            result = null;
+        }
+
+        if (result == null) {
+            result = new WorksheetEvaluationResponse.EvaluationResult();
+            extractScoresFromText(evaluationText, result);
+        }
+
+        applyDefaults(result, evaluationText);
+        return result;
+    }
+
+    private <T> T readValueAt(String text, int offset, Class<T> type) throws IOException {
+        Reader reader = new StringReader(text);
+        reader.skip(offset);
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            // Reads exactly one value; closing fences or prose after it are never touched
+            return objectMapper.readValue(parser, type);
+        }
+    }
+
+    private void extractScoresFromText(String text, WorksheetEvaluationResponse.EvaluationResult result) {
+        Matcher matcher = SCORE_PATTERN.matcher(text);
+        if (matcher.find()) {
+            double score = Double.parseDouble(matcher.group(1));
+            double maxScore = Double.parseDouble(matcher.group(2));
+
+            result.setTotalScore(score);
+            result.setMaxPossibleScore(maxScore);
+            result.setPercentage(maxScore > 0 ? (score / maxScore) * 100 : 0);
+
+            logger.info("Extracted scores using regex: {}/{} ({}%)", score, maxScore, result.getPercentage());
+        }
+
+        matcher = QUESTION_COUNT_PATTERN.matcher(text);
+        if (matcher.find()) {
+            result.setQuestionsAnalyzed(Integer.parseInt(matcher.group(1)));
+        }
+    }
+
+    private void applyDefaults(WorksheetEvaluationResponse.EvaluationResult result, String evaluationText) {
+        if (result.getQuestionWiseResults() == null) {
+            result.setQuestionWiseResults(new ArrayList<>());
+        }
+        if (result.getStrengths() == null) {
+            result.setStrengths(new ArrayList<>());
+        }
+        if (result.getAreasForImprovement() == null) {
+            result.setAreasForImprovement(new ArrayList<>());
+        }
+        if (result.getOverallFeedback() == null || result.getOverallFeedback().isEmpty()) {
+            result.setOverallFeedback(evaluationText);
+        }
+        if (result.getTeacherRecommendations() == null || result.getTeacherRecommendations().isEmpty()) {
+            result.setTeacherRecommendations("Please review the detailed feedback above.");
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.sahayak.service.gemini;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds Gemini responseSchema objects (the OpenAPI subset accepted by
+ * generationConfig) from our Jackson-annotated model classes, so structured
+ * output always matches the classes the response is bound to.
+ *
+ * Property names and order come from Jackson's own bean introspection.
+ * Primitive properties are marked required. Self-referencing types (e.g.
+ * sub-questions) are expanded one level deep, since the schema format has no
+ * references. Schemas are built once per type and cached.
+ */
+@Component
+public class GeminiSchemaGenerator {
+
+    // How many times a type may appear on the current path before its property is dropped
+    private static final int MAX_TYPE_DEPTH = 2;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, ObjectNode> schemaCache = new ConcurrentHashMap<>();
+
+    public GeminiSchemaGenerator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the response schema for a model class, leaving out top-level
+     * properties that are filled in by the server rather than the model
+     * (e.g. status, error).
+     */
+    public ObjectNode schemaFor(Class<?> type, String... excludedProperties) {
+        String cacheKey = type.getName() + Arrays.toString(excludedProperties);
+        return schemaCache.computeIfAbsent(cacheKey,
+            key -> objectSchema(objectMapper.constructType(type), Set.of(excludedProperties), new ArrayList<>()));
+    }
+
+    private ObjectNode schema(JavaType type, List<Class<?>> path) {
+        Class<?> rawClass = type.getRawClass();
+        ObjectNode schema = objectMapper.createObjectNode();
+
+        if (rawClass == String.class || rawClass == Character.class || rawClass == char.class
+                || Temporal.class.isAssignableFrom(rawClass)) {
+            schema.put("type", "STRING");
+        } else if (type.isEnumType()) {
+            schema.put("type", "STRING");
+            ArrayNode values = schema.putArray("enum");
+            for (Object constant : rawClass.getEnumConstants()) {
+                values.add(((Enum<?>) constant).name());
+            }
+        } else if (rawClass == boolean.class || rawClass == Boolean.class) {
+            schema.put("type", "BOOLEAN");
+        } else if (rawClass == int.class || rawClass == Integer.class
+                || rawClass == long.class || rawClass == Long.class
+                || rawClass == short.class || rawClass == Short.class) {
+            schema.put("type", "INTEGER");
+        } else if (type.isPrimitive() || Number.class.isAssignableFrom(rawClass)) {
+            schema.put("type", "NUMBER");
+        } else if (type.isCollectionLikeType() || type.isArrayType()) {
+            ObjectNode items = schema(type.getContentType(), path);
+            if (items == null) {
+                return null;
+            }
+            schema.put("type", "ARRAY");
+            schema.set("items", items);
+        } else if (type.isMapLikeType() || rawClass == Object.class) {
+            // Free-form objects cannot be described in this schema subset
+            return null;
+        } else {
+            return objectSchema(type, Collections.emptySet(), path);
+        }
+        return schema;
+    }
+
+    private ObjectNode objectSchema(JavaType type, Set<String> excludedProperties, List<Class<?>> path) {
+        Class<?> rawClass = type.getRawClass();
+        if (Collections.frequency(path, rawClass) >= MAX_TYPE_DEPTH) {
+            return null;
+        }
+
+        path.add(rawClass);
+        try {
+            ObjectNode schema = objectMapper.createObjectNode();
+            schema.put("type", "OBJECT");
+            ObjectNode properties = schema.putObject("properties");
+            ArrayNode required = objectMapper.createArrayNode();
+            ArrayNode ordering = objectMapper.createArrayNode();
+
+            BeanDescription description = objectMapper.getDeserializationConfig().introspect(type);
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                String name = property.getName();
+                if (excludedProperties.contains(name) || !property.couldDeserialize()) {
+                    continue;
+                }
+                JavaType propertyType = property.getPrimaryType();
+                ObjectNode propertySchema = schema(propertyType, path);
+                if (propertySchema == null) {
+                    continue;
+                }
+                properties.set(name, propertySchema);
+                ordering.add(name);
+                if (propertyType.isPrimitive()) {
+                    required.add(name);
+                }
+            }
+
+            if (!required.isEmpty()) {
+                schema.set("required", required);
+            }
+            schema.set("propertyOrdering", ordering);
+            return schema;
+        } finally {
+            path.remove(path.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.sahayak.service.gemini;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Request body for Gemini generateContent calls that writes the JSON envelope
+ * directly to the outgoing HTTP stream.
+ *
+ * The uploaded document is read from MultipartFile.getInputStream() and base64
+ * encoded on the fly by Jackson, so neither the raw file bytes nor the encoded
+ * string are ever held in memory as a whole.
+ *
+ * When a response schema is given, the request enables Gemini structured
+ * output so the reply is plain JSON matching that schema.
+ *
+ * The prompt may also be supplied as a pending future. The document part is
+ * then written first and the prompt is awaited only after it, so uploading
+ * and encoding the document overlaps with producing the prompt. The request
+ * stays half-sent while it waits, so callers bound the future (e.g. with
+ * orTimeout); a failed or timed out prompt aborts the request.
+ */
+public class GeminiStreamingRequestBody implements RequestCallback {
+
+    private final ObjectMapper objectMapper;
+    private final CompletableFuture<String> textPrompt;
+    private final boolean documentFirst;
+    private final MultipartFile document;
+    private final String mimeType;
+    private final JsonNode responseSchema;
+
+    /**
+     * Create a text-only request body
+     */
+    public GeminiStreamingRequestBody(ObjectMapper objectMapper, String textPrompt) {
+        this(objectMapper, textPrompt, null, null);
+    }
+
+    /**
+     * Create a request body with a text prompt followed by an inline document
+     */
+    public GeminiStreamingRequestBody(ObjectMapper objectMapper, String textPrompt,
+                                      MultipartFile document, String mimeType) {
+        this(objectMapper, textPrompt, document, mimeType, (JsonNode) null);
+    }
+
+    /**
+     * Create a request body with an inline document whose response must be
+     * JSON matching the given schema
+     */
+    public GeminiStreamingRequestBody(ObjectMapper objectMapper, String textPrompt,
+                                      MultipartFile document, String mimeType, JsonNode responseSchema) {
+        this(objectMapper, CompletableFuture.completedFuture(textPrompt), false, document, mimeType, responseSchema);
+    }
+
+    /**
+     * Create a request body whose prompt is still being produced. The document
+     * is streamed first and the prompt is written after it once available.
+     */
+    public GeminiStreamingRequestBody(ObjectMapper objectMapper, CompletableFuture<String> pendingPrompt,
+                                      MultipartFile document, String mimeType, JsonNode responseSchema) {
+        this(objectMapper, pendingPrompt, true, document, mimeType, responseSchema);
+    }
+
+    private GeminiStreamingRequestBody(ObjectMapper objectMapper, CompletableFuture<String> textPrompt,
+                                       boolean documentFirst, MultipartFile document, String mimeType,
+                                       JsonNode responseSchema) {
+        this.objectMapper = objectMapper;
+        this.textPrompt = textPrompt;
+        this.documentFirst = documentFirst && document != null && mimeType != null;
+        this.document = document;
+        this.mimeType = mimeType;
+        this.responseSchema = responseSchema;
+    }
+
+    @Override
+    public void doWithRequest(ClientHttpRequest request) throws IOException {
+        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        // Streaming requests hand us the connection stream; everything else buffers
+        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(this::writeTo);
+        } else {
+            writeTo(request.getBody());
+        }
+    }
+
+    /**
+     * Write the generateContent JSON body to the given stream
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(StreamUtils.nonClosing(outputStream))) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("contents");
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("parts");
+
+            if (documentFirst) {
+                writeDocumentPart(generator);
+                writeTextPart(generator, awaitPrompt());
+            } else {
+                writeTextPart(generator, awaitPrompt());
+                // Add document part if provided
+                if (document != null && mimeType != null) {
+                    writeDocumentPart(generator);
+                }
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+
+            // Structured output: JSON only, shaped by the schema
+            if (responseSchema != null) {
+                generator.writeObjectFieldStart("generationConfig");
+                generator.writeStringField("responseMimeType", MediaType.APPLICATION_JSON_VALUE);
+                generator.writeFieldName("responseSchema");
+                generator.writeTree(responseSchema);
+                generator.writeEndObject();
+            }
+
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeTextPart(JsonGenerator generator, String text) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("text", text);
+        generator.writeEndObject();
+    }
+
+    private void writeDocumentPart(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("inline_data");
+        generator.writeStringField("mime_type", mimeType);
+        generator.writeFieldName("data");
+        try (InputStream documentStream = document.getInputStream()) {
+            generator.writeBinary(documentStream, -1);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Wait for the prompt; a failed prompt aborts the request being written
+     */
+    private String awaitPrompt() throws IOException {
+        try {
+            return textPrompt.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Prompt was not available: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sahayak.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary sub-protocol of the /sahayak-teacher WebSocket.
+ *
+ * Every binary frame is a 2 byte header followed by raw media bytes:
+ * <pre>
+ *   byte 0   frame type: 0x01 audio, 0x02 video
+ *   byte 1   protocol version (currently 1)
+ *   byte 2.. payload
+ * </pre>
+ * Client to server audio is 16-bit little-endian mono PCM at 16 kHz and video
+ * is a JPEG frame. Server to client audio (sent only to clients that asked for
+ * it with "binaryAudio": true in their init message) is Gemini's 24 kHz PCM.
+ *
+ * This replaces {"type":"audio","data":"&lt;base64&gt;"} text frames, saving the
+ * base64 overhead and a JSON parse per chunk. SockJS transports are text only,
+ * so binary frames need a native WebSocket connection.
+ */
+public final class BinaryFrameProtocol {
+
+    public static final byte TYPE_AUDIO = 0x01;
+    public static final byte TYPE_VIDEO = 0x02;
+    public static final byte VERSION = 1;
+    public static final int HEADER_LENGTH = 2;
+
+    private BinaryFrameProtocol() {
+    }
+
+    /**
+     * Frame type of a binary message, or -1 if it is too short or of an unknown version
+     */
+    public static int frameType(ByteBuffer frame) {
+        if (frame.remaining() < HEADER_LENGTH || frame.get(frame.position() + 1) != VERSION) {
+            return -1;
+        }
+        return frame.get(frame.position());
+    }
+
+    /**
+     * View of the media bytes after the header; shares the frame's content
+     */
+    public static ByteBuffer payload(ByteBuffer frame) {
+        ByteBuffer payload = frame.duplicate();
+        payload.position(frame.position() + HEADER_LENGTH);
+        return payload.slice();
+    }
+
+    public static BinaryMessage audioFrame(byte[] pcm) {
+        byte[] frame = new byte[HEADER_LENGTH + pcm.length];
+        frame[0] = TYPE_AUDIO;
+        frame[1] = VERSION;
+        System.arraycopy(pcm, 0, frame, HEADER_LENGTH, pcm.length);
+        return new BinaryMessage(frame);
+    }
+
+    /**
+     * Audio frame decoded straight from base64 characters (e.g. a slice of a
+     * JSON parser's buffer), without an intermediate String or byte array
+     */
+    public static BinaryMessage audioFrame(char[] base64, int offset, int length) {
+        int padding = 0;
+        while (padding < 2 && length - padding > 0 && base64[offset + length - padding - 1] == '=') {
+            padding++;
+        }
+        int chars = length - padding;
+        if (chars % 4 == 1) {
+            throw new IllegalArgumentException("Invalid base64 length: " + length);
+        }
+
+        byte[] frame = new byte[HEADER_LENGTH + chars * 3 / 4];
+        frame[0] = TYPE_AUDIO;
+        frame[1] = VERSION;
+
+        int out = HEADER_LENGTH;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = offset, end = offset + chars; i < end; i++) {
+            bits = (bits << 6) | decodeBase64(base64[i]);
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                frame[out++] = (byte) (bits >> bitCount);
+            }
+        }
+        return new BinaryMessage(frame);
+    }
+
+    private static int decodeBase64(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        }
+        if (c == '+') {
+            return 62;
+        }
+        if (c == '/') {
+            return 63;
+        }
+        throw new IllegalArgumentException("Invalid base64 character: " + c);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sahayak.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * State of one browser WebSocket: its outbound queue, the Live session it
+ * drives once initialized and the negotiated audio format.
+ */
+class ClientConnection {
+
+    private final WebSocketSession session;
+    private final OutboundMessageQueue outboundQueue;
+    private volatile String teacherSessionId;
+    // Teacher audio as binary frames instead of base64 JSON
+    private volatile boolean binaryAudio;
+
+    ClientConnection(WebSocketSession session, OutboundMessageQueue outboundQueue) {
+        this.session = session;
+        this.outboundQueue = outboundQueue;
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    OutboundMessageQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    String getTeacherSessionId() {
+        return teacherSessionId;
+    }
+
+    void setTeacherSessionId(String teacherSessionId) {
+        this.teacherSessionId = teacherSessionId;
+    }
+
+    /**
+     * Forget the Live session if it is still the given one
+     */
+    synchronized void clearTeacherSessionId(String expected) {
+        if (expected.equals(teacherSessionId)) {
+            teacherSessionId = null;
+        }
+    }
+
+    boolean isBinaryAudio() {
+        return binaryAudio;
+    }
+
+    void setBinaryAudio(boolean binaryAudio) {
+        this.binaryAudio = binaryAudio;
+    }
+}
@@ -0,0 +1,253 @@
+package com.sahayak.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound writer of one browser WebSocket session.
+ *
+ * Messages produced on Gemini callback threads are queued and written by a
+ * single drain task at a time on the outbound executor, so sendMessage is
+ * never called concurrently and a slow browser never blocks a Gemini read
+ * loop. Audio is real-time: beyond maxAudioMessages the oldest queued audio
+ * is dropped. Other messages are never dropped; if they back up beyond
+ * maxBufferBytes the client cannot keep up and the session is closed. A
+ * send stuck for longer than sendTimeLimitMillis (a stalled connection) also
+ * closes the session, so it cannot hold a shared outbound thread for long,
+ * and so does a drain the saturated executor rejects: messages are either
+ * written or the client sees its connection close, never left queued.
+ */
+class OutboundMessageQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundMessageQueue.class);
+
+    // Messages written per drain task before yielding the thread to other sessions
+    private static final int DRAIN_BATCH_SIZE = 32;
+
+    enum Kind { AUDIO, MESSAGE }
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int maxAudioMessages;
+    private final long maxBufferBytes;
+    private final long sendTimeLimitNanos;
+    private final Timer sendLatency;
+    private final Counter droppedAudio;
+    private final DistributionSummary queueDepth;
+
+    // All guarded by "this"
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private int audioCount;
+    private long bufferedBytes;
+    private boolean draining;
+    private boolean closed;
+    // When the send in progress started, 0 if none; written by the drain thread only
+    private volatile long sendStartedAt;
+
+    OutboundMessageQueue(WebSocketSession session, Executor executor, int maxAudioMessages, long maxBufferBytes,
+                         long sendTimeLimitMillis, Timer sendLatency, Counter droppedAudio,
+                         DistributionSummary queueDepth) {
+        this.session = session;
+        this.executor = executor;
+        this.maxAudioMessages = maxAudioMessages;
+        this.maxBufferBytes = maxBufferBytes;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+        this.sendLatency = sendLatency;
+        this.droppedAudio = droppedAudio;
+        this.queueDepth = queueDepth;
+    }
+
+    void enqueue(WebSocketMessage<?> message, Kind kind) {
+        enqueue(message, kind, null);
+    }
+
+    /**
+     * Queue a last message and close the session with the given status once
+     * it has been written; anything queued after it is discarded
+     */
+    void enqueueFinal(WebSocketMessage<?> message, CloseStatus closeStatus) {
+        enqueue(message, Kind.MESSAGE, closeStatus);
+    }
+
+    private void enqueue(WebSocketMessage<?> message, Kind kind, CloseStatus closeStatus) {
+        if (isSendTimedOut()) {
+            logger.warn("Send to client {} blocked for over {} ms, closing session", session.getId(),
+                TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos));
+            closeSlowClient();
+            return;
+        }
+
+        boolean startDrain;
+        boolean overflow;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (kind == Kind.AUDIO && audioCount >= maxAudioMessages) {
+                removeOldestAudio();
+                droppedAudio.increment();
+            }
+
+            entries.addLast(new Entry(message, kind, closeStatus, System.nanoTime()));
+            bufferedBytes += message.getPayloadLength();
+            if (kind == Kind.AUDIO) {
+                audioCount++;
+            }
+            queueDepth.record(entries.size());
+
+            overflow = bufferedBytes > maxBufferBytes;
+            startDrain = !draining && !overflow;
+            if (startDrain) {
+                draining = true;
+            }
+        }
+
+        if (overflow) {
+            logger.warn("Client {} is not keeping up (over {} bytes queued), closing session", session.getId(), maxBufferBytes);
+            closeSlowClient();
+        } else if (startDrain) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Discard everything still queued; called when the session is gone
+     */
+    synchronized void close() {
+        closed = true;
+        entries.clear();
+        audioCount = 0;
+        bufferedBytes = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void scheduleDrain() {
+        try {
+            executor.execute(this::drain);
+        } catch (RuntimeException e) {
+            // Executor saturated: nothing would write the queued messages, so close instead of stranding them
+            logger.warn("Outbound executor rejected drain for session {}, closing session: {}", session.getId(),
+                e.getMessage());
+            CloseStatus closeStatus;
+            synchronized (this) {
+                draining = false;
+                closeStatus = pendingCloseStatus();
+            }
+            close();
+            closeSession(closeStatus);
+        }
+    }
+
+    /**
+     * Close status of a queued final message, or 1013 "try again later";
+     * caller holds the lock
+     */
+    private CloseStatus pendingCloseStatus() {
+        for (Entry entry : entries) {
+            if (entry.closeStatus != null) {
+                return entry.closeStatus;
+            }
+        }
+        return CloseStatus.SERVICE_OVERLOAD;
+    }
+
+    private void drain() {
+        for (int written = 0; written < DRAIN_BATCH_SIZE; written++) {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.pollFirst();
+                if (entry == null) {
+                    draining = false;
+                    return;
+                }
+                bufferedBytes -= entry.message.getPayloadLength();
+                if (entry.kind == Kind.AUDIO) {
+                    audioCount--;
+                }
+            }
+
+            try {
+                if (session.isOpen()) {
+                    sendStartedAt = System.nanoTime();
+                    session.sendMessage(entry.message);
+                    sendLatency.record(System.nanoTime() - entry.enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error sending message to client {}", session.getId(), e);
+            } finally {
+                sendStartedAt = 0;
+            }
+
+            if (entry.closeStatus != null) {
+                close();
+                closeSession(entry.closeStatus);
+            }
+        }
+
+        // Batch done; go to the back of the executor queue so other sessions get a turn
+        scheduleDrain();
+    }
+
+    // Caller holds the lock
+    private void removeOldestAudio() {
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.kind == Kind.AUDIO) {
+                iterator.remove();
+                audioCount--;
+                bufferedBytes -= entry.message.getPayloadLength();
+                return;
+            }
+        }
+    }
+
+    private boolean isSendTimedOut() {
+        long started = sendStartedAt;
+        return started != 0 && sendTimeLimitNanos > 0 && System.nanoTime() - started > sendTimeLimitNanos;
+    }
+
+    private void closeSlowClient() {
+        close();
+        closeSession(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void closeSession(CloseStatus closeStatus) {
+        try {
+            session.close(closeStatus);
+        } catch (IOException e) {
+            logger.debug("Error closing client {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static class Entry {
+        private final WebSocketMessage<?> message;
+        private final Kind kind;
+        // Close the session after this message, if set
+        private final CloseStatus closeStatus;
+        private final long enqueuedAt;
+
+        Entry(WebSocketMessage<?> message, Kind kind, CloseStatus closeStatus, long enqueuedAt) {
+            this.message = message;
+            this.kind = kind;
+            this.closeStatus = closeStatus;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
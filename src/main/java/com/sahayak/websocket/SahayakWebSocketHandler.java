@@ -2,15 +2,27 @@ package com.sahayak.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sahayak.config.ExecutorConfig;
+import com.sahayak.service.LiveCapacityExceededException;
 import com.sahayak.service.SahayakTeacherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class SahayakWebSocketHandler implements WebSocketHandler {
@@ -19,45 +31,91 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
     
     private final SahayakTeacherService teacherService;
     private final ObjectMapper objectMapper;
-    private final ConcurrentMap<String, String> sessionToTeacherMapping = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, WebSocketSession> webSocketSessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ClientConnection> connections = new ConcurrentHashMap<>();
+    private final AtomicLong chunkedMessageIds = new AtomicLong();
     
-    public SahayakWebSocketHandler(SahayakTeacherService teacherService, ObjectMapper objectMapper) {
+    @Value("${sahayak.websocket.outbound.max-message-chars:64000}")
+    private int maxMessageChars;
+    
+    @Value("${sahayak.websocket.outbound.max-audio-messages:50}")
+    private int maxQueuedAudioMessages;
+    
+    @Value("${sahayak.websocket.outbound.max-buffer-bytes:4194304}")
+    private long maxOutboundBufferBytes;
+    
+    // A single send blocked longer than this closes the session
+    @Value("${sahayak.websocket.outbound.send-time-limit-ms:10000}")
+    private long sendTimeLimitMillis;
+    
+    private final Executor outboundExecutor;
+    private final Timer outboundSendLatency;
+    private final Counter droppedOutboundAudio;
+    private final DistributionSummary outboundQueueDepth;
+    
+    public SahayakWebSocketHandler(SahayakTeacherService teacherService, ObjectMapper objectMapper,
+                                   @Qualifier(ExecutorConfig.CLIENT_OUTBOUND_EXECUTOR) Executor outboundExecutor,
+                                   MeterRegistry meterRegistry) {
         this.teacherService = teacherService;
         this.objectMapper = objectMapper;
+        this.outboundExecutor = outboundExecutor;
+        this.outboundSendLatency = Timer.builder("websocket.outbound.latency")
+            .description("Time from queueing a message for a browser session until it was written")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.droppedOutboundAudio = Counter.builder("websocket.outbound.dropped")
+            .tag("kind", "audio")
+            .description("Outbound audio messages dropped because the browser fell behind")
+            .register(meterRegistry);
+        this.outboundQueueDepth = DistributionSummary.builder("websocket.outbound.queue.depth")
+            .description("Outbound queue depth of a browser session when a message is queued")
+            .register(meterRegistry);
+        meterRegistry.gauge("websocket.outbound.queued", connections,
+            clients -> clients.values().stream().mapToInt(client -> client.getOutboundQueue().size()).sum());
+        meterRegistry.gauge("websocket.sessions", connections, Map::size);
     }
     
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         logger.info("WebSocket connection established: {}", session.getId());
-        webSocketSessions.put(session.getId(), session);
+        connections.put(session.getId(), new ClientConnection(session, new OutboundMessageQueue(session, outboundExecutor,
+            maxQueuedAudioMessages, maxOutboundBufferBytes, sendTimeLimitMillis,
+            outboundSendLatency, droppedOutboundAudio, outboundQueueDepth)));
         
         // Don't create session immediately - wait for init message to determine session type
-        sendToClient(session, createMessage("connection", "success", "WebSocket connected - waiting for initialization"));
+        sendToClient(session, "connection", "success", "WebSocket connected - waiting for initialization");
     }
     
     private void setupTeacherHandlers(String webSocketSessionId, String teacherSessionId) {
         // Handle audio responses from teacher
-        teacherService.setAudioHandler(teacherSessionId, audioData -> {
-            WebSocketSession session = webSocketSessions.get(webSocketSessionId);
+        teacherService.setAudioSink(teacherSessionId, (base64, offset, length) -> {
+            ClientConnection connection = connections.get(webSocketSessionId);
+            WebSocketSession session = connection != null ? connection.getSession() : null;
             if (session != null && session.isOpen()) {
-                sendToClient(session, createMessage("audio", "data", audioData));
+                if (connection.isBinaryAudio()) {
+                    enqueue(session, BinaryFrameProtocol.audioFrame(base64, offset, length),
+                        OutboundMessageQueue.Kind.AUDIO);
+                } else if (length <= maxMessageChars) {
+                    enqueue(session, new TextMessage(createAudioMessage(base64, offset, length)),
+                        OutboundMessageQueue.Kind.AUDIO);
+                } else {
+                    sendAudioChunks(session, base64, offset, length);
+                }
             }
         });
         
         // Handle text responses from teacher
         teacherService.setContentHandler(teacherSessionId, content -> {
-            WebSocketSession session = webSocketSessions.get(webSocketSessionId);
-            if (session != null && session.isOpen()) {
-                sendToClient(session, createMessage("content", "text", content));
+            WebSocketSession session = openSession(webSocketSessionId);
+            if (session != null) {
+                sendToClient(session, "content", "text", content);
             }
         });
         
         // Handle errors from teacher
         teacherService.setErrorHandler(teacherSessionId, error -> {
-            WebSocketSession session = webSocketSessions.get(webSocketSessionId);
-            if (session != null && session.isOpen()) {
-                sendToClient(session, createMessage("error", "teacher", error));
+            WebSocketSession session = openSession(webSocketSessionId);
+            if (session != null) {
+                sendToClient(session, "error", "teacher", error);
             }
         });
     }
@@ -74,7 +132,7 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
     private void handleTextMessage(WebSocketSession session, TextMessage message) {
         try {
             String payload = message.getPayload();
-            logger.debug("Received text message from {}: {}", session.getId(), payload);
+            logger.trace("Received text message from {}, length: {}", session.getId(), payload.length());
             
             JsonNode jsonNode = objectMapper.readTree(payload);
             String type = jsonNode.get("type").asText();
@@ -84,11 +142,11 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
                 return;
             }
             
-            String teacherSessionId = sessionToTeacherMapping.get(session.getId());
+            String teacherSessionId = teacherSessionOf(session);
             
             if (teacherSessionId == null) {
                 logger.warn("No teacher session found for WebSocket session: {}", session.getId());
-                sendToClient(session, createMessage("error", "session", "No teacher session available"));
+                sendToClient(session, "error", "session", "No teacher session available");
                 return;
             }
             
@@ -100,9 +158,8 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
                     
                 case "video":
                     String videoData = jsonNode.get("data").asText();
-                    logger.info("Received video message from {}, data size: {}", session.getId(), videoData.length());
+                    logger.debug("Received video message from {}, data size: {}", session.getId(), videoData.length());
                     teacherService.sendVideoToTeacher(teacherSessionId, videoData);
-                    logger.info("Video data forwarded to teacher session: {}", teacherSessionId);
                     break;
                     
                 case "text":
@@ -112,84 +169,151 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
                     
                 default:
                     logger.warn("Unknown message type: {}", type);
-                    sendToClient(session, createMessage("error", "unknown", "Unknown message type: " + type));
+                    sendToClient(session, "error", "unknown", "Unknown message type: " + type);
             }
             
+        } catch (LiveCapacityExceededException e) {
+            // A hibernated session could not be resumed on this instance
+            rejectSession(session, e);
         } catch (Exception e) {
             logger.error("Error handling text message from session {}", session.getId(), e);
-            sendToClient(session, createMessage("error", "processing", "Error processing message: " + e.getMessage()));
+            sendToClient(session, "error", "processing", "Error processing message: " + e.getMessage());
         }
     }
     
     private void handleInitMessage(WebSocketSession session, JsonNode jsonNode) {
         try {
+            ClientConnection connection = connections.get(session.getId());
+            if (connection == null) {
+                logger.warn("Init from unknown or closed WebSocket session {}", session.getId());
+                return;
+            }
+            
             String mode = jsonNode.has("mode") ? jsonNode.get("mode").asText() : "teacher";
             logger.info("Initializing session {} with mode: {}", session.getId(), mode);
             
+            if (jsonNode.path("binaryAudio").asBoolean(false)) {
+                if (session instanceof SockJsSession) {
+                    logger.info("Session {} requested binary audio over SockJS, falling back to text frames", session.getId());
+                } else {
+                    connection.setBinaryAudio(true);
+                }
+            }
+            
+            String teacherSessionId;
+            String assistantName;
             if ("prompt-creator".equals(mode)) {
-                // Create prompt creator session
-                teacherService.createPromptCreatorSession().thenAccept(teacherSessionId -> {
-                    sessionToTeacherMapping.put(session.getId(), teacherSessionId);
-                    logger.info("Mapped WebSocket session {} to prompt creator session {}", session.getId(), teacherSessionId);
-                    
-                    // Set up handlers for prompt creator responses
-                    setupTeacherHandlers(session.getId(), teacherSessionId);
-                    
-                    // Send connection success message to client
-                    sendToClient(session, createMessage("connection", "success", "Connected to Kalam Sir - Prompt Creator"));
-                }).exceptionally(throwable -> {
-                    logger.error("Failed to create prompt creator session for WebSocket {}", session.getId(), throwable);
-                    sendToClient(session, createMessage("connection", "error", "Failed to connect to Kalam Sir"));
-                    return null;
-                });
+                teacherSessionId = teacherService.startPromptCreatorSession();
+                assistantName = "Kalam Sir - Prompt Creator";
             } else if ("udaan-prompt-creator".equals(mode)) {
-                // Create Udaan prompt creator session
-                teacherService.createUdaanPromptCreatorSession().thenAccept(teacherSessionId -> {
-                    sessionToTeacherMapping.put(session.getId(), teacherSessionId);
-                    logger.info("Mapped WebSocket session {} to Udaan prompt creator session {}", session.getId(), teacherSessionId);
-                    
-                    // Set up handlers for Udaan prompt creator responses
-                    setupTeacherHandlers(session.getId(), teacherSessionId);
-                    
-                    // Send connection success message to client
-                    sendToClient(session, createMessage("connection", "success", "Connected to Udaan - Future Planner"));
-                }).exceptionally(throwable -> {
-                    logger.error("Failed to create Udaan prompt creator session for WebSocket {}", session.getId(), throwable);
-                    sendToClient(session, createMessage("connection", "error", "Failed to connect to Udaan"));
-                    return null;
-                });
+                teacherSessionId = teacherService.startUdaanPromptCreatorSession();
+                assistantName = "Udaan - Future Planner";
             } else {
-                // Create regular teacher session with optional custom prompt
+                // Regular teacher session with optional custom prompt
                 String customPrompt = jsonNode.has("customPrompt") && !jsonNode.get("customPrompt").isNull() 
                     ? jsonNode.get("customPrompt").asText() 
                     : null;
-                
                 logger.info("Creating teacher session with custom prompt: {}", customPrompt != null ? "Yes" : "No");
-                
-                teacherService.createTeacherSessionWithCustomPrompt(customPrompt).thenAccept(teacherSessionId -> {
-                    sessionToTeacherMapping.put(session.getId(), teacherSessionId);
-                    logger.info("Mapped WebSocket session {} to teacher session {} with custom prompt", session.getId(), teacherSessionId);
-                    
-                    // Set up handlers for teacher responses
-                    setupTeacherHandlers(session.getId(), teacherSessionId);
-                    
-                    // Send connection success message to client
-                    sendToClient(session, createMessage("connection", "success", "Connected to AI Teacher"));
-                }).exceptionally(throwable -> {
-                    logger.error("Failed to create teacher session for WebSocket {}", session.getId(), throwable);
-                    sendToClient(session, createMessage("connection", "error", "Failed to connect to AI Teacher"));
-                    return null;
-                });
+                teacherSessionId = teacherService.startTeacherSession(customPrompt);
+                assistantName = "AI Teacher";
             }
+            
+            // Map immediately: input sent while the session is still connecting is queued, not rejected
+            String previousSessionId = connection.getTeacherSessionId();
+            connection.setTeacherSessionId(teacherSessionId);
+            if (previousSessionId != null) {
+                // Re-init replaces the session instead of leaking the old one
+                teacherService.closeTeacherSession(previousSessionId);
+            }
+            // If the browser goes away before cleanupSession sees the mapping, the registry reaps the session
+            teacherService.attachOwner(teacherSessionId, session.getId(), session::isOpen,
+                reason -> endClosedSession(connection, teacherSessionId, reason));
+            setupTeacherHandlers(session.getId(), teacherSessionId);
+            logger.info("Mapped WebSocket session {} to {} session {}", session.getId(), mode, teacherSessionId);
+            sendToClient(session, "connection", "connecting", "Connecting to " + assistantName);
+            
+            teacherService.whenReady(teacherSessionId).thenRun(() ->
+                sendToClient(session, "connection", "success", "Connected to " + assistantName)
+            ).exceptionally(throwable -> {
+                logger.error("Failed to create {} session for WebSocket {}", mode, session.getId(), throwable);
+                connection.clearTeacherSessionId(teacherSessionId);
+                sendToClient(session, "connection", "error", "Failed to connect to " + assistantName);
+                return null;
+            });
+        } catch (LiveCapacityExceededException e) {
+            rejectSession(session, e);
         } catch (Exception e) {
             logger.error("Error handling init message from session {}", session.getId(), e);
-            sendToClient(session, createMessage("error", "init", "Error during initialization: " + e.getMessage()));
+            sendToClient(session, "error", "init", "Error during initialization: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Tell the client this instance is full (and where to go instead, if
+     * configured), then close with 1013 "try again later"
+     */
+    private void rejectSession(WebSocketSession session, LiveCapacityExceededException e) {
+        logger.warn("Rejecting WebSocket session {}: {}", session.getId(), e.getMessage());
+        ClientConnection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
         }
+        String message = e.getRedirectUrl() != null
+            ? createMessage("connection", "redirect", e.getRedirectUrl())
+            : createMessage("connection", "rejected", "Server is at capacity, please retry shortly");
+        connection.getOutboundQueue().enqueueFinal(new TextMessage(message), CloseStatus.SERVICE_OVERLOAD);
+    }
+    
+    /**
+     * The service closed the Live session (idle timeout, server close): tell
+     * the client and close the WebSocket so it stops sending input and can
+     * reconnect
+     */
+    private void endClosedSession(ClientConnection connection, String teacherSessionId, String reason) {
+        if (!teacherSessionId.equals(connection.getTeacherSessionId())) {
+            // Already replaced by a re-init
+            return;
+        }
+        connection.clearTeacherSessionId(teacherSessionId);
+        logger.info("Live session {} of WebSocket {} was closed: {}", teacherSessionId,
+            connection.getSession().getId(), reason);
+        connection.getOutboundQueue().enqueueFinal(new TextMessage(createMessage("connection", "closed", reason)),
+            CloseStatus.NORMAL.withReason(reason));
     }
     
     private void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
-        logger.debug("Received binary message from {}, size: {}", session.getId(), message.getPayloadLength());
-        // Handle binary data if needed (e.g., raw audio/video data)
+        try {
+            ByteBuffer frame = message.getPayload();
+            int frameType = BinaryFrameProtocol.frameType(frame);
+            
+            String teacherSessionId = teacherSessionOf(session);
+            if (teacherSessionId == null) {
+                logger.warn("No teacher session found for WebSocket session: {}", session.getId());
+                sendToClient(session, "error", "session", "No teacher session available");
+                return;
+            }
+            
+            switch (frameType) {
+                case BinaryFrameProtocol.TYPE_AUDIO:
+                    teacherService.sendAudioToTeacher(teacherSessionId, BinaryFrameProtocol.payload(frame));
+                    break;
+                    
+                case BinaryFrameProtocol.TYPE_VIDEO:
+                    logger.debug("Received binary video frame from {}, size: {}", session.getId(), message.getPayloadLength());
+                    teacherService.sendVideoToTeacher(teacherSessionId, BinaryFrameProtocol.payload(frame));
+                    break;
+                    
+                default:
+                    logger.warn("Unknown binary frame from {}, size: {}", session.getId(), message.getPayloadLength());
+                    sendToClient(session, "error", "unknown", "Unknown binary frame type");
+            }
+            
+        } catch (LiveCapacityExceededException e) {
+            rejectSession(session, e);
+        } catch (Exception e) {
+            logger.error("Error handling binary message from session {}", session.getId(), e);
+            sendToClient(session, "error", "processing", "Error processing message: " + e.getMessage());
+        }
     }
     
     @Override
@@ -210,33 +334,119 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
     }
     
     private void cleanupSession(String webSocketSessionId) {
-        String teacherSessionId = sessionToTeacherMapping.remove(webSocketSessionId);
-        webSocketSessions.remove(webSocketSessionId);
+        ClientConnection connection = connections.remove(webSocketSessionId);
+        if (connection == null) {
+            return;
+        }
+        connection.getOutboundQueue().close();
         
+        String teacherSessionId = connection.getTeacherSessionId();
         if (teacherSessionId != null) {
             logger.info("Closing teacher session: {}", teacherSessionId);
             teacherService.closeTeacherSession(teacherSessionId);
         }
     }
     
-    private void sendToClient(WebSocketSession session, String message) {
-        try {
-            if (session.isOpen()) {
-                // Split large messages into smaller chunks if needed
-                if (message.length() > 64000) { // 64KB limit
-                    logger.warn("Message too large ({}), truncating", message.length());
-                    message = message.substring(0, 64000) + "...";
-                }
-                session.sendMessage(new TextMessage(message));
-            }
-        } catch (IOException e) {
-            logger.error("Error sending message to client {}", session.getId(), e);
+    /**
+     * Send a message, splitting data longer than maxMessageChars into chunk
+     * messages the client reassembles (see ChunkResponse)
+     */
+    private void sendToClient(WebSocketSession session, String type, String subType, String data) {
+        if (data == null || data.length() <= maxMessageChars) {
+            enqueue(session, new TextMessage(createMessage(type, subType, data)), OutboundMessageQueue.Kind.MESSAGE);
+            return;
+        }
+        
+        long messageId = chunkedMessageIds.incrementAndGet();
+        int total = (data.length() + maxMessageChars - 1) / maxMessageChars;
+        logger.debug("Sending {} chars of {}/{} to {} as {} chunks", data.length(), type, subType, session.getId(), total);
+        for (int seq = 0; seq < total; seq++) {
+            int start = seq * maxMessageChars;
+            String part = data.substring(start, Math.min(data.length(), start + maxMessageChars));
+            ChunkResponse chunk = new ChunkResponse(type, subType, messageId, seq, total, part);
+            enqueue(session, new TextMessage(writeJson(chunk)), OutboundMessageQueue.Kind.MESSAGE);
+        }
+    }
+    
+    /**
+     * Like sendToClient for audio longer than maxMessageChars, but each chunk
+     * message is written straight from its slice of the base64 characters, so
+     * the whole audio is never copied into one String
+     */
+    private void sendAudioChunks(WebSocketSession session, char[] base64, int offset, int length) {
+        long messageId = chunkedMessageIds.incrementAndGet();
+        int total = (length + maxMessageChars - 1) / maxMessageChars;
+        logger.debug("Sending {} chars of audio/data to {} as {} chunks", length, session.getId(), total);
+        for (int seq = 0; seq < total; seq++) {
+            int start = seq * maxMessageChars;
+            int partLength = Math.min(length - start, maxMessageChars);
+            String chunk = createAudioChunkMessage(messageId, seq, total, base64, offset + start, partLength);
+            enqueue(session, new TextMessage(chunk), OutboundMessageQueue.Kind.AUDIO);
+        }
+    }
+    
+    /**
+     * Queue a message for the session's writer; never blocks the calling (Gemini) thread
+     */
+    private void enqueue(WebSocketSession session, WebSocketMessage<?> message, OutboundMessageQueue.Kind kind) {
+        ClientConnection connection = connections.get(session.getId());
+        if (connection != null && session.isOpen()) {
+            connection.getOutboundQueue().enqueue(message, kind);
         }
     }
     
+    private WebSocketSession openSession(String webSocketSessionId) {
+        ClientConnection connection = connections.get(webSocketSessionId);
+        return connection != null && connection.getSession().isOpen() ? connection.getSession() : null;
+    }
+    
+    private String teacherSessionOf(WebSocketSession session) {
+        ClientConnection connection = connections.get(session.getId());
+        return connection != null ? connection.getTeacherSessionId() : null;
+    }
+    
     private String createMessage(String type, String subType, String data) {
+        return writeJson(new MessageResponse(type, subType, data));
+    }
+    
+    /**
+     * Same JSON as createMessage("audio", "data", ...), written straight from
+     * the base64 characters; base64 never needs JSON escaping
+     */
+    private static String createAudioMessage(char[] base64, int offset, int length) {
+        StringBuilder json = new StringBuilder(length + 80);
+        json.append("{\"type\":\"audio\",\"subType\":\"data\",\"data\":\"")
+            .append(base64, offset, length)
+            .append("\",\"timestamp\":")
+            .append(System.currentTimeMillis())
+            .append('}');
+        return json.toString();
+    }
+    
+    /**
+     * Same JSON as a ChunkResponse for audio/data, written straight from the
+     * base64 characters
+     */
+    private static String createAudioChunkMessage(long messageId, int seq, int total,
+                                                  char[] base64, int offset, int length) {
+        StringBuilder json = new StringBuilder(length + 160);
+        json.append("{\"type\":\"chunk\",\"messageType\":\"audio\",\"messageSubType\":\"data\",\"messageId\":")
+            .append(messageId)
+            .append(",\"seq\":")
+            .append(seq)
+            .append(",\"total\":")
+            .append(total)
+            .append(",\"data\":\"")
+            .append(base64, offset, length)
+            .append("\",\"timestamp\":")
+            .append(System.currentTimeMillis())
+            .append('}');
+        return json.toString();
+    }
+    
+    private String writeJson(Object message) {
         try {
-            return objectMapper.writeValueAsString(new MessageResponse(type, subType, data));
+            return objectMapper.writeValueAsString(message);
         } catch (Exception e) {
             logger.error("Error creating message", e);
             return "{\"type\":\"error\",\"subType\":\"internal\",\"data\":\"Internal error\"}";
@@ -269,4 +479,43 @@ public class SahayakWebSocketHandler implements WebSocketHandler {
         public long getTimestamp() { return timestamp; }
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
     }
+    
+    /**
+     * One piece of a message whose data exceeds the per-message limit.
+     *
+     * Pieces of a message share messageId and arrive in order with seq 0 to
+     * total - 1; joining their data gives the original data of a message with
+     * messageType/messageSubType. Audio pieces may be dropped when the client
+     * falls behind, so a message with a missing seq should be discarded.
+     */
+    public static class ChunkResponse {
+        private final String type = "chunk";
+        private String messageType;
+        private String messageSubType;
+        private long messageId;
+        private int seq;
+        private int total;
+        private String data;
+        private long timestamp;
+        
+        public ChunkResponse(String messageType, String messageSubType, long messageId, int seq, int total, String data) {
+            this.messageType = messageType;
+            this.messageSubType = messageSubType;
+            this.messageId = messageId;
+            this.seq = seq;
+            this.total = total;
+            this.data = data;
+            this.timestamp = System.currentTimeMillis();
+        }
+        
+        public String getType() { return type; }
+        
+        public String getMessageType() { return messageType; }
+        public String getMessageSubType() { return messageSubType; }
+        public long getMessageId() { return messageId; }
+        public int getSeq() { return seq; }
+        public int getTotal() { return total; }
+        public String getData() { return data; }
+        public long getTimestamp() { return timestamp; }
+    }
 }